@@ -1,8 +1,9 @@
-import {ROUTES, SUCCESS_MESSAGES} from "../utils/constants.js";
+import {ROUTES, SERVER_EVENTS, SUCCESS_MESSAGES} from "../utils/constants.js";
 import {toast} from "./toast.js";
 import {userService} from "../services/userService.js";
 import {sessionService} from "../services/sessionService.js";
 import {errorService} from "../services/errorService.js";
+import {eventService} from "../services/eventService.js";
 
 /**
  * Navigation component that manages navbar state based on user authentication.
@@ -11,11 +12,13 @@ import {errorService} from "../services/errorService.js";
  * Responsibilities:
  * - Toggle navigation buttons based on authentication state
  * - Handle user logout workflow
+ * - Open the server event stream and react when the session is ended elsewhere
  * - Prevent duplicate event listener registration
  * - Coordinate with session management for UI updates
  *
  * @see {sessionService}
  * @see {userService}
+ * @see {eventService}
  */
 class Navigation {
 
@@ -37,6 +40,7 @@ class Navigation {
         document.getElementById('profile-btn').classList.remove('hidden');
 
         this.#setupLogoutEventListener();
+        this.#setupEventStream();
     }
 
     showDefaultNavBar() {
@@ -52,6 +56,7 @@ class Navigation {
 
         if (!logoutButton.hasAttribute('data-logout-handler')) {
             logoutButton.addEventListener('click', () => {
+                eventService.disconnect();
                 userService.logout()
                     .catch(error => errorService.handleLogoutError(error))
                     .finally(() => {
@@ -63,6 +68,27 @@ class Navigation {
             logoutButton.setAttribute('data-logout-handler', 'true');
         }
     }
+
+    #setupEventStream() {
+        eventService.on(SERVER_EVENTS.SESSION_ENDED, () => this.#handleSessionEnded());
+        eventService.connect();
+    }
+
+    // Changing email or password ends the old session but issues a new cookie, so check before logging out
+    #handleSessionEnded() {
+        eventService.disconnect();
+
+        userService.getCurrentUser()
+            .then(userData => {
+                sessionService.setActiveSession(userData);
+                eventService.connect();
+            })
+            .catch(() => {
+                sessionService.clearActiveSession();
+                this.showDefaultNavBar();
+                errorService.showSessionExpiredModal();
+            });
+    }
 }
 
 export const navigation = new Navigation();
\ No newline at end of file
@@ -2,6 +2,10 @@ import {changePasswordForm} from "../components/forms/changePasswordForm.js";
 import {changeEmailForm} from "../components/forms/changeEmailForm.js";
 import {modal} from "../components/modal.js";
 import {sessionService} from "../services/sessionService.js";
+import {userService} from "../services/userService.js";
+import {errorService} from "../services/errorService.js";
+import {eventService} from "../services/eventService.js";
+import {SERVER_EVENTS} from "../utils/constants.js";
 
 /**
  * User profile page script for profile management and updates.
@@ -10,13 +14,16 @@ import {sessionService} from "../services/sessionService.js";
  * Responsibilities:
  * - Display current user profile information
  * - Handle profile update modal triggers
- * - Populate profile data from session storage
+ * - Populate profile data from session storage, then refresh it from the server
+ * - Refresh again whenever the server reports a profile change
  * - Coordinate with change form components
  *
  * @see {changePasswordForm}
  * @see {changeEmailForm}
  * @see {modal}
  * @see {sessionService}
+ * @see {userService}
+ * @see {eventService}
  */
 const userProfileContainer = document.getElementById('user-profile');
 const changePasswordButton = document.getElementById('change-password-btn');
@@ -39,9 +46,20 @@ if (userProfileContainer) {
 
     if (userData) {
         populateProfile(userData);
+        refreshProfile();
+        eventService.on(SERVER_EVENTS.PROFILE_CHANGED, refreshProfile);
     }
 }
 
+function refreshProfile() {
+    userService.getCurrentUser()
+        .then(userData => {
+            sessionService.setActiveSession(userData);
+            populateProfile(userData);
+        })
+        .catch(error => errorService.handleRequestError(error));
+}
+
 function populateProfile(userData) {
     document.getElementById('profile-username').textContent = userData.username;
     document.getElementById('profile-email').textContent = userData.email;
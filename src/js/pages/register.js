@@ -1,4 +1,4 @@
-import {ROUTES, SUCCESS_MESSAGES} from "../utils/constants.js";
+import {ROUTES, SUCCESS_MESSAGES, VALIDATION_RULES, AVAILABILITY_CONFIG} from "../utils/constants.js";
 import {validator} from "../utils/validation.js"
 import {toast} from "../components/toast.js";
 import {userService} from "../services/userService.js";
@@ -13,6 +13,7 @@ import {passwordRequirementsToggler} from "../components/passwordRequirementsTog
  * Responsibilities:
  * - Handle registration form validation and submission
  * - Display password requirements for user guidance
+ * - Show live username/email availability as the user types
  * - Coordinate with userService for account creation
  * - Manage session creation and redirect on successful registration
  *
@@ -32,6 +33,58 @@ if (passwordFormGroup) {
     passwordFormGroup.appendChild(passwordRequirementsToggler.build());
 }
 
+setupAvailabilityCheck('sign-up-username', 'Username', 'username', VALIDATION_RULES.USERNAME.REGEX);
+setupAvailabilityCheck('sign-up-email', 'Email', 'email', VALIDATION_RULES.EMAIL.REGEX);
+
+/**
+ * Checks availability once typing pauses, and only for values that already pass
+ * client-side validation. Responses for values the user has since changed are ignored.
+ */
+function setupAvailabilityCheck(inputId, fieldName, queryKey, regex) {
+    const input = document.getElementById(inputId);
+
+    if (!input) {
+        return;
+    }
+
+    const hint = document.createElement('small');
+    hint.className = 'availability-hint';
+    input.insertAdjacentElement('afterend', hint);
+
+    let debounceTimer;
+
+    input.addEventListener('input', () => {
+        clearTimeout(debounceTimer);
+        setAvailabilityHint(hint, null, '');
+
+        const value = input.value.trim();
+        if (!regex.test(value)) {
+            return;
+        }
+
+        debounceTimer = setTimeout(() => {
+            userService.checkAvailability({[queryKey]: value})
+                .then(result => {
+                    if (input.value.trim() !== value) {
+                        return;
+                    }
+
+                    const available = result[`${queryKey}Available`];
+                    setAvailabilityHint(hint, available, available
+                        ? AVAILABILITY_CONFIG.MESSAGES.AVAILABLE(fieldName)
+                        : AVAILABILITY_CONFIG.MESSAGES.TAKEN(fieldName));
+                })
+                .catch(() => setAvailabilityHint(hint, null, ''));
+        }, AVAILABILITY_CONFIG.DEBOUNCE_MS);
+    });
+}
+
+function setAvailabilityHint(hint, available, message) {
+    hint.textContent = message;
+    hint.classList.toggle('available', available === true);
+    hint.classList.toggle('taken', available === false);
+}
+
 function handleRegister(e) {
     e.preventDefault();
     const userData = getRegistrationFormData();
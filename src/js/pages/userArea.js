@@ -1,6 +1,8 @@
 import {modal} from "../components/modal.js";
 import {userService} from "../services/userService.js";
 import {errorService} from "../services/errorService.js";
+import {eventService} from "../services/eventService.js";
+import {SEARCH_CONFIG, SERVER_EVENTS} from "../utils/constants.js";
 
 /**
  * User area page script for authenticated user functionality.
@@ -8,6 +10,8 @@ import {errorService} from "../services/errorService.js";
  *
  * Responsibilities:
  * - Handle user list retrieval and display
+ * - Search users by username or email as the user types
+ * - Refresh search results when the server reports that users changed
  * - Create dynamic user list components
  * - Display user information in modal format
  * - Coordinate with userService for data operations
@@ -15,13 +19,44 @@ import {errorService} from "../services/errorService.js";
  * @see {userService}
  * @see {modal}
  * @see {errorService}
+ * @see {eventService}
  */
 const listUsersButton = document.getElementById('list-users-btn');
 
+const searchInput = document.getElementById('user-search-input');
+const searchResults = document.getElementById('user-search-results');
+let searchDebounceTimer;
+
 if (listUsersButton) {
     listUsersButton.addEventListener('click', handleListUsers);
 }
 
+if (searchInput && searchResults) {
+    searchInput.addEventListener('input', handleSearchInput);
+    eventService.on(SERVER_EVENTS.USERS_CHANGED, handleSearchInput);
+}
+
+function handleSearchInput() {
+    clearTimeout(searchDebounceTimer);
+    const query = searchInput.value.trim();
+
+    if (!query) {
+        searchResults.replaceChildren();
+        return;
+    }
+
+    searchDebounceTimer = setTimeout(() => {
+        userService.searchUsers(query, SEARCH_CONFIG.RESULT_LIMIT)
+            .then(users => {
+                // Ignore responses for a query the user has already moved past
+                if (searchInput.value.trim() === query) {
+                    searchResults.replaceChildren(...users.map(user => createUserItem(user)));
+                }
+            })
+            .catch(error => errorService.handleRequestError(error));
+    }, SEARCH_CONFIG.DEBOUNCE_MS);
+}
+
 function handleListUsers() {
     userService.getAllUsers()
         .then(users => createUsersList(users))
@@ -73,6 +73,12 @@ class ErrorService {
             case "invalid_input":
                 this.showInvalidInputToast();
                 break;
+            case "password_breached":
+                this.showBreachedPasswordToast();
+                break;
+            case "too_many_requests":
+                this.showTooManyRequestsToast();
+                break;
             default:
                 this.showGenericErrorToast();
                 break;
@@ -113,6 +119,14 @@ class ErrorService {
         toast.show("error", "Invalid Input", ERROR_MESSAGES.INPUT.INVALID);
     }
 
+    showBreachedPasswordToast() {
+        toast.show("error", "Password Not Allowed", ERROR_MESSAGES.VALIDATION.BREACHED_PASSWORD);
+    }
+
+    showTooManyRequestsToast() {
+        toast.show("warning", "Too Many Attempts", ERROR_MESSAGES.INPUT.TOO_MANY_REQUESTS);
+    }
+
     showGenericErrorToast() {
         toast.show("error", "Oops!", ERROR_MESSAGES.DEFAULT);
     }
@@ -0,0 +1,57 @@
+import {API_CONFIG} from "../utils/constants.js";
+
+/**
+ * Client-side Server-Sent Events service for change notifications pushed by the backend.
+ * Replaces polling and page reloads for session and user data changes.
+ *
+ * Responsibilities:
+ * - Open a single event stream per page for the active session
+ * - Register page handlers for named events, before or after the stream opens
+ * - Close the stream on logout or when the session ends
+ *
+ * Events are hints to refetch data, never the data itself. EventSource reconnects on its own
+ * after network errors, using the retry delay sent by the server.
+ *
+ * @see {navigation}
+ * @see {userService}
+ */
+class EventService {
+    #source = null;
+    #handlers = new Map();
+
+    connect() {
+        if (this.#source || !window.EventSource) {
+            return;
+        }
+
+        let url = `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.EVENTS}`;
+        const source = new EventSource(url, {withCredentials: true});
+
+        this.#handlers.forEach((handlers, eventName) => {
+            handlers.forEach(handler => source.addEventListener(eventName, handler));
+        });
+
+        this.#source = source;
+    }
+
+    disconnect() {
+        if (this.#source) {
+            this.#source.close();
+            this.#source = null;
+        }
+    }
+
+    on(eventName, handler) {
+        if (!this.#handlers.has(eventName)) {
+            this.#handlers.set(eventName, []);
+        }
+
+        this.#handlers.get(eventName).push(handler);
+
+        if (this.#source) {
+            this.#source.addEventListener(eventName, handler);
+        }
+    }
+}
+
+export const eventService = new EventService();
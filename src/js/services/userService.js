@@ -6,8 +6,9 @@ import {API_CONFIG} from "../utils/constants.js";
  *
  * Responsibilities:
  * - Execute user authentication and registration requests
+ * - Check username/email availability for live registration feedback
  * - Handle profile update operations (email, password changes)
- * - Manage user data retrieval and listing
+ * - Manage user data retrieval, listing and search
  * - Process API responses and error handling
  * - Coordinate with backend RESTful API endpoints
  *
@@ -45,6 +46,16 @@ class UserService {
         });
     }
 
+    async checkAvailability(fields) {
+        const query = new URLSearchParams(fields).toString();
+        let url = `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.AVAILABILITY}?${query}`;
+
+        return this.#getResponse(url, {
+            method: "GET",
+            headers: {"Accept": "application/json"}
+        });
+    }
+
     async getAllUsers() {
         let url = `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.USERS}`;
 
@@ -55,6 +66,28 @@ class UserService {
         });
     }
 
+    // The browser revalidates with If-None-Match, so an unchanged profile comes back as a 304
+    async getCurrentUser() {
+        let url = `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.CURRENT_USER}`;
+
+        return this.#getResponse(url, {
+            method: "GET",
+            credentials: "include",
+            headers: {"Accept": "application/json"}
+        });
+    }
+
+    async searchUsers(query, limit) {
+        const params = new URLSearchParams({q: query, limit: limit}).toString();
+        let url = `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.SEARCH}?${params}`;
+
+        return this.#getResponse(url, {
+            method: "GET",
+            credentials: "include",
+            headers: {"Accept": "application/json"}
+        });
+    }
+
     async changePassword(userData) {
         let url = `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.CHANGE_PASSWORD(userData.id)}`;
 
@@ -16,10 +16,20 @@ export const API_CONFIG = {
         LOGIN: "/users/login/",
         LOGOUT: "/users/logout/",
         CHANGE_PASSWORD: (userId) => `/users/${userId}/password/`,
-        CHANGE_EMAIL: (userId) => `/users/${userId}/email/`
+        CHANGE_EMAIL: (userId) => `/users/${userId}/email/`,
+        AVAILABILITY: "/users/availability",
+        SEARCH: "/users/search",
+        CURRENT_USER: "/users/me",
+        EVENTS: "/users/events"
     }
 };
 
+export const SERVER_EVENTS = {
+    SESSION_ENDED: "session-ended",
+    USERS_CHANGED: "users-changed",
+    PROFILE_CHANGED: "profile-changed"
+};
+
 export const ROUTES = {
     HOME: "index.html",
     LOGIN: "login.html",
@@ -50,6 +60,19 @@ export const VALIDATION_RULES = {
     }
 }
 
+export const AVAILABILITY_CONFIG = {
+    DEBOUNCE_MS: 300,
+    MESSAGES: {
+        TAKEN: (fieldName) => `This ${fieldName.toLowerCase()} is already taken`,
+        AVAILABLE: (fieldName) => `This ${fieldName.toLowerCase()} is available`
+    }
+};
+
+export const SEARCH_CONFIG = {
+    DEBOUNCE_MS: 200,
+    RESULT_LIMIT: 20
+};
+
 export const TOAST_CONFIG = {
     DEFAULT_DURATION: 5000,
     ICONS: {
@@ -73,6 +96,7 @@ export const ERROR_MESSAGES = {
         INVALID_USERNAME: "Username must be between 4-25 characters - please try again",
         INVALID_EMAIL: "Invalid email provided - please try again",
         INVALID_PASSWORD: "Password does not meet the complexity requirements - please try again",
+        BREACHED_PASSWORD: "This password has appeared in a known data breach - please choose a different one",
         SAME_AS_CURRENT: (fieldName) => {
             let field = fieldName.toLowerCase();
             return `Your new ${field} must be different from your current ${field} - please try again`
@@ -89,7 +113,8 @@ export const ERROR_MESSAGES = {
     },
     INPUT: {
         NO_VALUE_PROVIDED: (fieldName) => `You must enter a ${fieldName.toLowerCase()} - please try again`,
-        INVALID: "Invalid input provided - please try again"
+        INVALID: "Invalid input provided - please try again",
+        TOO_MANY_REQUESTS: "Too many attempts - please wait a moment and try again"
     },
     DEFAULT: "Something went wrong - please try again"
 };
\ No newline at end of file
@@ -0,0 +1,64 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts accepted connections and tracks the busiest one-second window, so connection
+ * storms show up in the shutdown statistics even though every connection is short-lived.
+ * <p>
+ * Responsibilities:
+ * - Count accepted connections without contention between acceptor threads
+ * - Track the peak number of accepts seen within a single second
+ * - Report the average accept rate since the meter was created
+ * <p>
+ * Seconds are rolled over by whichever acceptor first notices the change, so an accept
+ * racing the rollover may be counted in the neighbouring second.
+ *
+ * @see HttpServer
+ */
+public class AcceptRateMeter {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder acceptedThisSecond = new LongAdder();
+    private final AtomicLong currentSecond = new AtomicLong(secondOf(startNanos));
+    private volatile long peakPerSecond;
+
+    public void record() {
+        long second = secondOf(System.nanoTime());
+
+        if (second != currentSecond.get()) {
+            rollOver(second);
+        }
+
+        accepted.increment();
+        acceptedThisSecond.increment();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getPeakPerSecond() {
+        return Math.max(peakPerSecond, acceptedThisSecond.sum());
+    }
+
+    public double getAveragePerSecond() {
+        double elapsedSeconds = (double) (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+        return elapsedSeconds > 0 ? accepted.sum() / elapsedSeconds : 0;
+    }
+
+    private synchronized void rollOver(long second) {
+        if (second == currentSecond.get()) {
+            return; // Another acceptor rolled over first
+        }
+
+        peakPerSecond = Math.max(peakPerSecond, acceptedThisSecond.sumThenReset());
+        currentSecond.set(second);
+    }
+
+    private static long secondOf(long nanos) {
+        return Math.floorDiv(nanos, NANOS_PER_SECOND);
+    }
+}
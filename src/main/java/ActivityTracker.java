@@ -0,0 +1,138 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind tracker for each user's last-login time and login count, keeping the extra
+ * UPDATE off the login path.
+ * <p>
+ * Responsibilities:
+ * - Buffer logins in memory, coalescing repeated logins by the same user into one entry
+ * - Flush the buffer periodically from a background thread in batched UPDATE statements
+ * - Put entries back into the buffer when a flush fails, so they are retried next time
+ * - Drain the buffer with a final flush on shutdown, before the connection pools close
+ * <p>
+ * Recording a login never blocks or touches the database; a crash loses at most one flush
+ * interval of activity, which is acceptable for statistics that are not used for auth.
+ *
+ * @see UserService
+ * @see UserDAO
+ * @see ServerConfig
+ */
+public class ActivityTracker {
+    private static final ServerConfig.ActivitySettings settings = ServerConfig.get().activity();
+    private static final int SHUTDOWN_WAIT_SECONDS = 5;
+
+    private static final Map<Integer, LoginActivity> pending = new ConcurrentHashMap<>();
+    private static final UserDAO userDAO = new UserDAO();
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().daemon().name("activity-flush").unstarted(runnable));
+
+    private static final LongAdder recordedLogins = new LongAdder();
+    private static final LongAdder flushedUsers = new LongAdder();
+    private static final LongAdder failedFlushes = new LongAdder();
+
+    static {
+        flusher.scheduleWithFixedDelay(ActivityTracker::flush,
+                settings.flushIntervalMillis(), settings.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public static void recordLogin(int userId) {
+        pending.merge(userId, new LoginActivity(userId, 1, System.currentTimeMillis()), LoginActivity::combine);
+        recordedLogins.increment();
+    }
+
+    // Called during server shutdown, after in-flight requests have drained
+    public static void shutdown() {
+        flusher.shutdown();
+
+        try {
+            if (!flusher.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Activity flush still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+
+        if (!pending.isEmpty()) {
+            System.err.println("Login activity for " + pending.size() + " users could not be saved");
+        }
+    }
+
+    public static long getRecordedLoginCount() {
+        return recordedLogins.sum();
+    }
+
+    public static long getFlushedUserCount() {
+        return flushedUsers.sum();
+    }
+
+    public static long getFailedFlushCount() {
+        return failedFlushes.sum();
+    }
+
+    public static int getPendingUserCount() {
+        return pending.size();
+    }
+
+    // Entries are removed one at a time, so a login recorded mid-flush starts a fresh entry
+    // for the next flush instead of being lost
+    private static void flush() {
+        List<LoginActivity> batch = new ArrayList<>();
+
+        for (Integer userId : pending.keySet()) {
+            LoginActivity activity = pending.remove(userId);
+
+            if (activity == null) {
+                continue;
+            }
+
+            batch.add(activity);
+
+            if (batch.size() >= settings.flushBatchSize()) {
+                if (!write(batch)) {
+                    return; // The database is likely down; the rest stays buffered for the next interval
+                }
+                batch = new ArrayList<>();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private static boolean write(List<LoginActivity> batch) {
+        try {
+            userDAO.recordLoginActivity(batch);
+            flushedUsers.add(batch.size());
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            batch.forEach(activity -> pending.merge(activity.userId(), activity, LoginActivity::combine));
+            failedFlushes.increment();
+            System.err.println("Login activity flush failed, retrying next interval: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Logins by one user since the last flush.
+     *
+     * @param loginCount logins to add to the stored count
+     * @param lastLoginMillis epoch millis of the most recent of those logins
+     */
+    public record LoginActivity(int userId, int loginCount, long lastLoginMillis) {
+        LoginActivity combine(LoginActivity other) {
+            return new LoginActivity(userId, loginCount + other.loginCount,
+                    Math.max(lastLoginMillis, other.lastLoginMillis));
+        }
+    }
+}
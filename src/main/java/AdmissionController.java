@@ -0,0 +1,151 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive concurrency limiter guarding request handling against overload.
+ * Limits how many requests may be inside the handler pipeline (DB access, bcrypt) at once
+ * and sheds excess work immediately instead of queueing it.
+ * <p>
+ * Responsibilities:
+ * - Admit or reject requests based on the current limit and their RequestPriority
+ * - Adapt the limit using AIMD: additive increase while latency stays under target,
+ *   multiplicative decrease when observed latency exceeds it
+ * - Track admitted and shed request counts per priority
+ * <p>
+ * Lower priorities may only use a share of the limit, so login/register bursts are
+ * rejected before static files and session reads are affected.
+ *
+ * @see RequestPriority
+ * @see HttpRequestHandler
+ */
+public class AdmissionController {
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final int retryAfterSeconds;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<RequestPriority, LongAdder> admittedCounts = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, LongAdder> shedCounts = new EnumMap<>(RequestPriority.class);
+    private volatile double limit;
+    private long lastDecreaseNanos;
+
+    public AdmissionController(int initialLimit, int minLimit, int maxLimit,
+                               long targetLatencyMillis, int retryAfterSeconds) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+        limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        for (RequestPriority priority : RequestPriority.values()) {
+            admittedCounts.put(priority, new LongAdder());
+            shedCounts.put(priority, new LongAdder());
+        }
+    }
+
+    /**
+     * Attempts to admit a request of the given priority.
+     *
+     * @return a permit that must be released once the request is handled, or null if shed
+     */
+    public Permit tryAcquire(RequestPriority priority) {
+        int allowed = Math.max(1, (int) (limit * priority.limitShare()));
+
+        while (true) {
+            int current = inFlight.get();
+
+            if (current >= allowed) {
+                shedCounts.get(priority).increment();
+                return null;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admittedCounts.get(priority).increment();
+                return new Permit(System.nanoTime());
+            }
+        }
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAdmittedCount(RequestPriority priority) {
+        return admittedCounts.get(priority).sum();
+    }
+
+    public long getShedCount(RequestPriority priority) {
+        return shedCounts.get(priority).sum();
+    }
+
+    private void onRelease(long latencyNanos, int inFlightAtRelease) {
+        if (latencyNanos > targetLatencyNanos) {
+            decreaseLimit();
+        } else if (inFlightAtRelease * 2 >= limit) {
+            // Only grow while the limit is actually being used, otherwise it drifts to max
+            increaseLimit();
+        }
+    }
+
+    private synchronized void increaseLimit() {
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+
+    private synchronized void decreaseLimit() {
+        long now = System.nanoTime();
+
+        // At most one decrease per target latency window so a single slow burst isn't over-counted
+        if (now - lastDecreaseNanos < targetLatencyNanos) {
+            return;
+        }
+
+        lastDecreaseNanos = now;
+        limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+    }
+
+    /**
+     * Admission granted to a single request; releasing it feeds the observed latency back into the limit.
+     * Requests whose duration tracks their upload size rather than server load, such as a streamed
+     * import, release without feedback so they still count against in-flight but never shrink the limit.
+     */
+    public class Permit {
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        public void release() {
+            if (released) {
+                return;
+            }
+
+            released = true;
+            int inFlightAtRelease = inFlight.getAndDecrement();
+            onRelease(System.nanoTime() - startNanos, inFlightAtRelease);
+        }
+
+        public void releaseWithoutFeedback() {
+            if (released) {
+                return;
+            }
+
+            released = true;
+            inFlight.decrementAndGet();
+        }
+    }
+}
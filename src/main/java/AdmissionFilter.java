@@ -0,0 +1,51 @@
+/**
+ * Applies AdmissionController to every request, shedding it with a 503 when its priority's
+ * share of the concurrency limit is used up.
+ * <p>
+ * Responsibilities:
+ * - Prioritise user requests by their UserRoute and static files as HIGH
+ * - Hold a permit for the rest of the chain, releasing it once the response is built
+ * - Keep streamed-body routes' latency out of the limit, since it measures the upload, not load
+ * - Mark shed requests with the SHED attribute for filters earlier in the chain
+ *
+ * @see AdmissionController
+ * @see RequestPriority
+ * @see HttpRequestHandler
+ */
+public class AdmissionFilter implements HttpFilter {
+    public static final String SHED = "admission.shed";
+
+    private final AdmissionController admissionController;
+
+    public AdmissionFilter(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public HttpResponse filter(RequestContext context, FilterChain chain) {
+        AdmissionController.Permit permit = admissionController.tryAcquire(getRequestPriority(context));
+
+        if (permit == null) {
+            context.setAttribute(SHED, Boolean.TRUE);
+            return HttpRequestHandler.getServiceUnavailableResponse(admissionController.getRetryAfterSeconds());
+        }
+
+        try {
+            return chain.proceed(context);
+        } finally {
+            if (isStreamingBody(context)) {
+                permit.releaseWithoutFeedback();
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private static boolean isStreamingBody(RequestContext context) {
+        return context.isUserRequest() && context.getUserRoute().streamsBody();
+    }
+
+    private static RequestPriority getRequestPriority(RequestContext context) {
+        return context.isUserRequest() ? context.getUserRoute().priority() : RequestPriority.HIGH;
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Conservative minifier for the frontend's JavaScript and CSS, used by AssetPipeline.
+ * Removes comments and redundant whitespace only; identifiers and code are never rewritten.
+ * <p>
+ * Responsibilities:
+ * - Copy string, template and regular expression literals through untouched
+ * - Drop comments and indentation, and join lines where no semicolon could be inserted
+ * - Keep a space only where removing it would merge two tokens
+ * - Collapse CSS whitespace around braces, separators and declarations
+ * <p>
+ * Line breaks are kept wherever automatic semicolon insertion might depend on them, so the
+ * output parses exactly as the input did. Unterminated literals fail with IllegalArgumentException.
+ *
+ * @see AssetPipeline
+ */
+public class AssetMinifier {
+    private static final String JOINS_AFTER = "{([,;=:?&|<>*%!^~";
+    private static final String JOINS_BEFORE = "})].?:";
+    private static final String REGEX_AFTER = "(,=:[!&|?{};+-*%<>~^}";
+    private static final Set<String> REGEX_AFTER_KEYWORDS = Set.of("return", "typeof", "instanceof", "in", "of",
+            "new", "delete", "void", "throw", "case", "do", "else", "yield", "await");
+    private static final String CSS_TIGHT = "{};,>";
+
+    public static String minifyJavaScript(String source) {
+        StringBuilder out = new StringBuilder(source.length());
+        Deque<Integer> templateBraceDepths = new ArrayDeque<>();
+        int braceDepth = 0;
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+        int i = 0;
+
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            char next = i + 1 < source.length() ? source.charAt(i + 1) : 0;
+
+            if (c == '/' && next == '/') {
+                while (i < source.length() && source.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+
+            if (c == '/' && next == '*') {
+                int end = source.indexOf("*/", i + 2);
+
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated comment at offset " + i);
+                }
+
+                if (source.substring(i, end).indexOf('\n') >= 0) {
+                    pendingNewline = true;
+                } else {
+                    pendingSpace = true;
+                }
+                i = end + 2;
+                continue;
+            }
+
+            if (c == '\n') {
+                pendingNewline = true;
+                i++;
+                continue;
+            }
+
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+
+            boolean regexAllowed = isRegexAllowed(out);
+            appendSeparator(out, c, pendingSpace, pendingNewline);
+            pendingSpace = false;
+            pendingNewline = false;
+
+            if (c == '"' || c == '\'') {
+                i = copyString(source, i, out);
+            } else if (c == '`') {
+                out.append(c);
+                i = copyTemplateText(source, i + 1, out, templateBraceDepths, braceDepth);
+            } else if (c == '/' && regexAllowed) {
+                i = copyRegex(source, i, out);
+            } else if (c == '}' && !templateBraceDepths.isEmpty() && templateBraceDepths.peek() == braceDepth) {
+                templateBraceDepths.pop();
+                out.append(c);
+                i = copyTemplateText(source, i + 1, out, templateBraceDepths, braceDepth);
+            } else {
+                if (c == '{') {
+                    braceDepth++;
+                } else if (c == '}') {
+                    braceDepth--;
+                }
+                out.append(c);
+                i++;
+            }
+        }
+
+        return out.append('\n').toString();
+    }
+
+    public static String minifyCss(String source) {
+        StringBuilder out = new StringBuilder(source.length());
+        boolean pendingSpace = false;
+        int i = 0;
+
+        while (i < source.length()) {
+            char c = source.charAt(i);
+
+            if (c == '/' && i + 1 < source.length() && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated comment at offset " + i);
+                }
+                i = end + 2;
+                pendingSpace = true;
+                continue;
+            }
+
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+
+            char previous = out.isEmpty() ? 0 : out.charAt(out.length() - 1);
+
+            if (pendingSpace && !out.isEmpty() && CSS_TIGHT.indexOf(c) < 0
+                    && CSS_TIGHT.indexOf(previous) < 0 && previous != ':') {
+                out.append(' ');
+            }
+            pendingSpace = false;
+
+            if (c == '"' || c == '\'') {
+                i = copyString(source, i, out);
+            } else {
+                if (c == '}' && previous == ';') {
+                    out.setLength(out.length() - 1); // The last declaration needs no terminator
+                }
+                out.append(c);
+                i++;
+            }
+        }
+
+        return out.append('\n').toString();
+    }
+
+    private static void appendSeparator(StringBuilder out, char next, boolean pendingSpace, boolean pendingNewline) {
+        if (out.isEmpty() || (!pendingSpace && !pendingNewline)) {
+            return;
+        }
+
+        char previous = out.charAt(out.length() - 1);
+
+        // A line break may end a statement; only join where no semicolon could be inserted
+        if (pendingNewline && JOINS_AFTER.indexOf(previous) < 0 && JOINS_BEFORE.indexOf(next) < 0) {
+            out.append('\n');
+        } else if (needsSpace(previous, next)) {
+            out.append(' ');
+        }
+    }
+
+    private static boolean needsSpace(char previous, char next) {
+        return (isIdentifierChar(previous) && (isIdentifierChar(next) || next == '#'))
+                || ((previous == '+' || previous == '-') && (next == '+' || next == '-'))
+                || previous == '/' || next == '/'
+                || (next == '.' && Character.isDigit(previous));
+    }
+
+    private static boolean isRegexAllowed(StringBuilder out) {
+        if (out.isEmpty()) {
+            return true;
+        }
+
+        char previous = out.charAt(out.length() - 1);
+
+        if (REGEX_AFTER.indexOf(previous) >= 0) {
+            return true;
+        }
+
+        int wordStart = out.length();
+        while (wordStart > 0 && isIdentifierChar(out.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+
+        return REGEX_AFTER_KEYWORDS.contains(out.substring(wordStart));
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c > 127;
+    }
+
+    private static int copyString(String source, int start, StringBuilder out) {
+        char quote = source.charAt(start);
+        out.append(quote);
+
+        for (int i = start + 1; i < source.length(); i++) {
+            char c = source.charAt(i);
+            out.append(c);
+
+            if (c == '\\' && i + 1 < source.length()) {
+                out.append(source.charAt(++i));
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                break;
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated string at offset " + start);
+    }
+
+    // Copies template text up to and including the closing backtick or the next "${"
+    private static int copyTemplateText(String source, int start, StringBuilder out,
+                                        Deque<Integer> templateBraceDepths, int braceDepth) {
+        for (int i = start; i < source.length(); i++) {
+            char c = source.charAt(i);
+            out.append(c);
+
+            if (c == '\\' && i + 1 < source.length()) {
+                out.append(source.charAt(++i));
+            } else if (c == '`') {
+                return i + 1;
+            } else if (c == '$' && i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                out.append('{');
+                templateBraceDepths.push(braceDepth);
+                return i + 2;
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated template literal at offset " + start);
+    }
+
+    private static int copyRegex(String source, int start, StringBuilder out) {
+        boolean inClass = false;
+        out.append('/');
+
+        for (int i = start + 1; i < source.length(); i++) {
+            char c = source.charAt(i);
+            out.append(c);
+
+            if (c == '\\' && i + 1 < source.length()) {
+                out.append(source.charAt(++i));
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass) {
+                return i + 1;
+            } else if (c == '\n') {
+                break;
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated regular expression at offset " + start);
+    }
+}
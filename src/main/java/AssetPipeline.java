@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Startup asset pipeline that turns the frontend's ES module graph and stylesheet into
+ * two minified, content-hashed files, so each page loads one script instead of a waterfall
+ * of module requests.
+ * <p>
+ * Responsibilities:
+ * - Walk the module graph from main.js, following static imports and dynamic import() calls
+ * - Bundle every module into one script, each wrapped in a factory that runs on first import,
+ *   so page modules still only run on their own page
+ * - Minify the bundle and styles.css and name each after a hash of its content
+ * - Rewrite the HTML pages to reference the fingerprinted files
+ * - Map request paths to the built files for FileRequestHandler
+ * <p>
+ * Only named imports and exported declarations are supported, which is all the frontend uses;
+ * anything else, or an import cycle, fails the build. If the build fails or is disabled, the
+ * source files are served unchanged, which is also the way to develop against live edits.
+ *
+ * @see AssetMinifier
+ * @see FileRequestHandler
+ * @see ServerConfig
+ */
+public class AssetPipeline {
+    public static final String ASSET_URL_PREFIX = "/assets/";
+    private static final Path SOURCE_ROOT = Path.of("src");
+    private static final Path SCRIPT_ROOT = SOURCE_ROOT.resolve("js");
+    private static final String ENTRY_MODULE = "main.js";
+    private static final String SCRIPT_REFERENCE = "/src/js/main.js";
+    private static final String STYLESHEET_REFERENCE = "/src/styles.css";
+    private static final int HASH_LENGTH = 12;
+
+    private static final Pattern STATIC_IMPORT = Pattern.compile(
+            "^import\\s*\\{([^}]*)}\\s*from\\s*[\"']([^\"']+)[\"'];?[ \\t]*$", Pattern.MULTILINE);
+    private static final Pattern DYNAMIC_IMPORT = Pattern.compile("\\bimport\\(\\s*[\"']([^\"']+)[\"']\\s*\\)");
+    private static final Pattern EXPORTED_DECLARATION = Pattern.compile(
+            "^export\\s+((?:const|let|var|function|class)\\s+([A-Za-z_$][\\w$]*))", Pattern.MULTILINE);
+    private static final Pattern UNSUPPORTED_SYNTAX = Pattern.compile("^(?:import|export)\\b", Pattern.MULTILINE);
+
+    // Published once by build(); read by every file request afterwards
+    private static volatile Map<Path, Path> builtFiles = Map.of();
+    private static volatile Set<Path> fingerprintedFiles = Set.of();
+
+    /**
+     * Builds the assets into the configured output directory. On failure the previous state
+     * (source files served as-is) is kept and the error is logged.
+     *
+     * @return true if the built assets are being served
+     */
+    public static boolean build(ServerConfig.AssetSettings settings) {
+        if (!settings.enabled()) {
+            return false;
+        }
+
+        try {
+            Path outputRoot = Path.of(settings.outputDirectory());
+            Map<Path, Path> built = new HashMap<>();
+            Set<Path> fingerprinted = new HashSet<>();
+
+            String script = AssetMinifier.minifyJavaScript(bundleModules(SCRIPT_ROOT));
+            String styles = AssetMinifier.minifyCss(Files.readString(SOURCE_ROOT.resolve("styles.css")));
+            String scriptName = writeFingerprinted(outputRoot, "app", ".js", script, built, fingerprinted);
+            String stylesName = writeFingerprinted(outputRoot, "styles", ".css", styles, built, fingerprinted);
+
+            Path pageRoot = outputRoot.resolve("pages");
+            Files.createDirectories(pageRoot);
+
+            try (Stream<Path> pages = Files.list(SOURCE_ROOT)) {
+                for (Path page : pages.filter(path -> path.toString().endsWith(".html")).toList()) {
+                    String html = Files.readString(page)
+                            .replace(SCRIPT_REFERENCE, ASSET_URL_PREFIX + scriptName)
+                            .replace(STYLESHEET_REFERENCE, ASSET_URL_PREFIX + stylesName);
+                    Path builtPage = pageRoot.resolve(page.getFileName());
+                    Files.writeString(builtPage, html);
+                    built.put(page.normalize(), builtPage);
+                }
+            }
+
+            fingerprintedFiles = Set.copyOf(fingerprinted);
+            builtFiles = Map.copyOf(built);
+            System.out.println("Assets built: " + scriptName + " (" + script.length() + " bytes), "
+                    + stylesName + " (" + styles.length() + " bytes)");
+
+            return true;
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Asset pipeline failed, serving source files: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the built file to serve for a requested path, or the requested path itself
+     */
+    public static Path resolve(Path requestedPath) {
+        return builtFiles.getOrDefault(requestedPath.normalize(), requestedPath);
+    }
+
+    /**
+     * @return true if the requested path is a content-hashed asset that can be cached forever
+     */
+    public static boolean isFingerprinted(Path requestedPath) {
+        return fingerprintedFiles.contains(requestedPath.normalize());
+    }
+
+    private static String writeFingerprinted(Path outputRoot, String baseName, String extension, String content,
+                                             Map<Path, Path> built, Set<Path> fingerprinted) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String fileName = baseName + "." + contentHash(bytes) + extension;
+        Path requestPath = Path.of(ASSET_URL_PREFIX.substring(1), fileName);
+        Path outputPath = outputRoot.resolve(fileName);
+
+        Files.createDirectories(outputRoot);
+        Files.write(outputPath, bytes);
+        built.put(requestPath, outputPath);
+        fingerprinted.add(requestPath);
+
+        return fileName;
+    }
+
+    private static String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest).substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    // Each module becomes a factory returning its exports; __require runs a factory once and caches
+    // the result, which preserves ES module evaluation order for an acyclic graph
+    static String bundleModules(Path scriptRoot) throws IOException {
+        Map<String, Module> modules = new LinkedHashMap<>();
+        loadModule(scriptRoot, ENTRY_MODULE, modules, new ArrayList<>());
+
+        StringBuilder bundle = new StringBuilder("const __modules = {\n");
+
+        for (Module module : modules.values()) {
+            bundle.append('"').append(module.id()).append("\": () => {\n")
+                    .append(module.body())
+                    .append("\nreturn {").append(String.join(", ", module.exports())).append("};\n},\n");
+        }
+
+        return bundle.append("""
+                };
+                const __exports = {};
+                function __require(id) {
+                    if (!(id in __exports)) {
+                        __exports[id] = __modules[id]();
+                    }
+                    return __exports[id];
+                }
+                function __import(id) {
+                    return Promise.resolve().then(() => __require(id));
+                }
+                __require("%s");
+                """.formatted(ENTRY_MODULE)).toString();
+    }
+
+    private static void loadModule(Path scriptRoot, String id, Map<String, Module> modules, List<String> importChain)
+            throws IOException {
+        if (importChain.contains(id)) {
+            throw new IllegalStateException("Import cycle: " + String.join(" -> ", importChain) + " -> " + id);
+        }
+
+        if (modules.containsKey(id)) {
+            return;
+        }
+
+        importChain.add(id);
+        String source = Files.readString(scriptRoot.resolve(id));
+        List<String> lazyImports = new ArrayList<>();
+
+        StringBuilder body = new StringBuilder();
+        Matcher imports = STATIC_IMPORT.matcher(source);
+
+        while (imports.find()) {
+            String dependency = resolveModuleId(id, imports.group(2));
+            loadModule(scriptRoot, dependency, modules, importChain);
+            imports.appendReplacement(body, Matcher.quoteReplacement("const {"
+                    + imports.group(1).trim().replaceAll("\\s+as\\s+", ": ") + "} = __require(\"" + dependency + "\");"));
+        }
+        imports.appendTail(body);
+
+        Matcher dynamicImports = DYNAMIC_IMPORT.matcher(body.toString());
+        StringBuilder rewritten = new StringBuilder();
+
+        while (dynamicImports.find()) {
+            String dependency = resolveModuleId(id, dynamicImports.group(1));
+            lazyImports.add(dependency);
+            dynamicImports.appendReplacement(rewritten, Matcher.quoteReplacement("__import(\"" + dependency + "\")"));
+        }
+        dynamicImports.appendTail(rewritten);
+
+        List<String> exports = new ArrayList<>();
+        Matcher declarations = EXPORTED_DECLARATION.matcher(rewritten.toString());
+        StringBuilder withoutExports = new StringBuilder();
+
+        while (declarations.find()) {
+            exports.add(declarations.group(2));
+            declarations.appendReplacement(withoutExports, Matcher.quoteReplacement(declarations.group(1)));
+        }
+        declarations.appendTail(withoutExports);
+
+        Matcher unsupported = UNSUPPORTED_SYNTAX.matcher(withoutExports);
+        if (unsupported.find()) {
+            throw new IllegalStateException("Unsupported import/export form in " + id);
+        }
+
+        importChain.remove(importChain.size() - 1);
+        modules.put(id, new Module(id, withoutExports.toString(), exports));
+
+        // Lazily imported modules are bundled too, but are outside the static chain
+        for (String lazyImport : lazyImports) {
+            loadModule(scriptRoot, lazyImport, modules, new ArrayList<>());
+        }
+    }
+
+    private static String resolveModuleId(String importerId, String specifier) {
+        if (!specifier.startsWith("./") && !specifier.startsWith("../")) {
+            throw new IllegalStateException("Unsupported module specifier in " + importerId + ": " + specifier);
+        }
+
+        Path importerDirectory = Path.of(importerId).getParent();
+        Path resolved = (importerDirectory != null ? importerDirectory.resolve(specifier) : Path.of(specifier))
+                .normalize();
+
+        if (resolved.startsWith("..")) {
+            throw new IllegalStateException("Module outside " + SCRIPT_ROOT + ": " + specifier);
+        }
+
+        return resolved.toString().replace('\\', '/');
+    }
+
+    private record Module(String id, String body, List<String> exports) {
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory index of taken usernames and emails used to answer availability checks
+ * without querying the database.
+ * Backed by one BloomFilter per field: a negative answer is definitive, so only possible
+ * hits (taken values plus ~1% false positives) fall through to the database.
+ * <p>
+ * Responsibilities:
+ * - Build both filters from the users table in the background at startup
+ * - Record usernames and emails as UserDAO inserts or changes them
+ * - Rebuild with more capacity once inserts exceed the sized capacity
+ * - Count how many checks were answered in memory versus sent to the database
+ * <p>
+ * Until the first build completes, and if it fails, every check reports a possible hit so
+ * callers fall back to the database. Values that are deleted or changed stay in the filter
+ * until the next rebuild; they only cost a database lookup.
+ * <p>
+ * Writes made during a rebuild are recorded into both the live and the new filter, so the
+ * swap never loses an entry.
+ *
+ * @see BloomFilter
+ * @see UserService
+ * @see UserDAO
+ */
+public class AvailabilityIndex {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int CAPACITY_HEADROOM = 2;
+    private static final int MIN_CAPACITY = ServerConfig.get().availability().filterCapacity();
+
+    private static final AtomicBoolean rebuilding = new AtomicBoolean();
+    private static final LongAdder answeredInMemory = new LongAdder();
+    private static final LongAdder possibleHits = new LongAdder();
+    private static volatile Filters current;
+    private static volatile Filters building;
+
+    /**
+     * Starts a background rebuild unless one is already running.
+     */
+    public static void rebuildAsync() {
+        if (rebuilding.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("availability-index").start(AvailabilityIndex::rebuild);
+        }
+    }
+
+    public static boolean mightContainUsername(String username) {
+        Filters filters = current;
+        return recordOutcome(filters == null || filters.usernames().mightContain(username));
+    }
+
+    public static boolean mightContainEmail(String email) {
+        Filters filters = current;
+        return recordOutcome(filters == null || filters.emails().mightContain(email));
+    }
+
+    public static void recordUsername(String username) {
+        // Read building before current: if a rebuild swaps in between, current is already the new filter
+        Filters next = building;
+        Filters live = current;
+
+        for (Filters filters : new Filters[]{next, live}) {
+            if (filters != null) {
+                filters.addUsername(username);
+            }
+        }
+
+        checkCapacity(live);
+    }
+
+    public static void recordEmail(String email) {
+        Filters next = building;
+        Filters live = current;
+
+        for (Filters filters : new Filters[]{next, live}) {
+            if (filters != null) {
+                filters.addEmail(email);
+            }
+        }
+
+        checkCapacity(live);
+    }
+
+    public static long getAnsweredInMemoryCount() {
+        return answeredInMemory.sum();
+    }
+
+    public static long getPossibleHitCount() {
+        return possibleHits.sum();
+    }
+
+    private static void rebuild() {
+        try {
+            UserDAO userDAO = new UserDAO();
+            long capacity = Math.max(MIN_CAPACITY, userDAO.countUsers() * CAPACITY_HEADROOM);
+            Filters filters = new Filters(capacity);
+            building = filters;
+
+            userDAO.streamAllUsers(user -> {
+                filters.addUsername(user.getUsername());
+                filters.addEmail(user.getEmail());
+            });
+
+            current = filters;
+            System.out.println("Availability index built for up to " + capacity + " users");
+        } catch (SQLException | IOException e) {
+            System.err.println("Availability index build failed, checks will use the database: " + e.getMessage());
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    private static void checkCapacity(Filters live) {
+        if (live != null && live.isOverCapacity()) {
+            rebuildAsync();
+        }
+    }
+
+    private static boolean recordOutcome(boolean mightContain) {
+        (mightContain ? possibleHits : answeredInMemory).increment();
+        return mightContain;
+    }
+
+    private record Filters(BloomFilter usernames, BloomFilter emails, long capacity,
+                           AtomicLong usernameCount, AtomicLong emailCount) {
+        Filters(long capacity) {
+            this(new BloomFilter(capacity, FALSE_POSITIVE_RATE), new BloomFilter(capacity, FALSE_POSITIVE_RATE),
+                    capacity, new AtomicLong(), new AtomicLong());
+        }
+
+        void addUsername(String username) {
+            usernames.add(username);
+            usernameCount.incrementAndGet();
+        }
+
+        void addEmail(String email) {
+            emails.add(email);
+            emailCount.incrementAndGet();
+        }
+
+        boolean isOverCapacity() {
+            return usernameCount.get() > capacity || emailCount.get() > capacity;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings, sized for an expected number of entries and a
+ * target false-positive rate.
+ * <p>
+ * Answers "definitely absent" or "possibly present" in constant time without locks:
+ * bits live in an AtomicLongArray and are set with atomic OR, so concurrent adds and
+ * lookups never block each other. Entries cannot be removed.
+ * <p>
+ * Bit positions come from double hashing (Kirsch-Mitzenmacher) over one 64-bit hash
+ * of the string, so each lookup hashes the value once regardless of the hash count.
+ *
+ * @see AvailabilityIndex
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        long entries = Math.max(1, expectedEntries);
+        long bits = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / entries * Math.log(2)));
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int firstHash = (int) hash;
+        int secondHash = (int) (hash >>> 32);
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(firstHash + (long) i * secondHash, bitCount);
+            long mask = 1L << bit;
+            int wordIndex = (int) (bit >>> 6);
+
+            if ((words.get(wordIndex) & mask) == 0) {
+                words.getAndAccumulate(wordIndex, mask, (word, bits) -> word | bits);
+            }
+        }
+    }
+
+    /**
+     * @return false if the value was definitely never added; true if it may have been
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int firstHash = (int) hash;
+        int secondHash = (int) (hash >>> 32);
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(firstHash + (long) i * secondHash, bitCount);
+
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer for well-spread high bits
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,27 @@
+import java.io.IOException;
+
+/**
+ * I/O exception thrown by request body streams when a client breaches a body limit
+ * (deadline, minimum transfer rate, idle timeout or size) while the body is being read.
+ * <p>
+ * Body streams may be consumed by handlers long after parsing finished, so the breach is
+ * counted against its DisconnectReason when the exception is created rather than by
+ * whoever eventually catches it.
+ *
+ * @see RequestBodyInputStream
+ * @see ChunkedInputStream
+ * @see DisconnectReason
+ */
+public class BodyLimitException extends IOException {
+    private final DisconnectReason reason;
+
+    public BodyLimitException(DisconnectReason reason, String message) {
+        super(message);
+        this.reason = reason;
+        reason.record();
+    }
+
+    public DisconnectReason getReason() {
+        return reason;
+    }
+}
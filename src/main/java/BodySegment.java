@@ -0,0 +1,30 @@
+import java.nio.file.Path;
+
+/**
+ * One contiguous piece of a response body: either bytes already in memory or a region
+ * of a file that ResponseWriter transfers straight from a FileChannel.
+ * <p>
+ * Lets large static files and multipart range responses be sent without reading the
+ * file onto the heap.
+ *
+ * @param bytes in-memory content, or null for a file region
+ * @param file file to read from, or null for in-memory content
+ * @param position starting offset within the file
+ * @param length number of bytes in this segment
+ * @see HttpResponse
+ * @see ResponseWriter
+ */
+public record BodySegment(byte[] bytes, Path file, long position, long length) {
+
+    public static BodySegment ofBytes(byte[] bytes) {
+        return new BodySegment(bytes, null, 0, bytes.length);
+    }
+
+    public static BodySegment ofFile(Path file, long position, long length) {
+        return new BodySegment(null, file, position, length);
+    }
+
+    public boolean isFile() {
+        return file != null;
+    }
+}
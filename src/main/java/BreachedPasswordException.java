@@ -0,0 +1,15 @@
+/**
+ * Checked exception thrown when a password meets the complexity rules but appears in the
+ * BreachedPasswordIndex.
+ * <p>
+ * Extends ValidationException so callers that only need pass/fail keep working, while request
+ * handlers can catch it first and answer with the distinct password_breached error code.
+ *
+ * @see UserValidationUtil
+ * @see BreachedPasswordIndex
+ */
+public class BreachedPasswordException extends ValidationException {
+    public BreachedPasswordException(String message) {
+        super(message);
+    }
+}
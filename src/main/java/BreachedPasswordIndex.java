@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offline check of passwords against a local list of known-breached password hashes.
+ * The list is memory-mapped, so hundreds of millions of entries are searched through the OS
+ * page cache without being loaded onto the heap or sent over the network.
+ * <p>
+ * Responsibilities:
+ * - Map the configured hash file read-only at startup, failing fast if it is unusable
+ * - Hash candidate passwords with SHA-1 and search the file for the first 8 bytes
+ * - Count checks and breached passwords found
+ * <p>
+ * The file is a flat array of big-endian 64-bit SHA-1 prefixes sorted in ascending unsigned
+ * order, which is what the hash column of the Pwned Passwords "ordered by hash" download
+ * becomes when truncated to 16 hex characters and decoded. SHA-1 prefixes are uniformly
+ * distributed, so an interpolation search finds an entry in a handful of probes, falling back
+ * to binary search if the guesses stop converging. A 64-bit prefix makes a false match on a
+ * list of a billion hashes a one-in-ten-billion event.
+ * <p>
+ * With no file configured every password passes.
+ *
+ * @see UserValidationUtil
+ * @see ServerConfig
+ */
+public class BreachedPasswordIndex {
+    private static final int ENTRY_BYTES = Long.BYTES;
+    private static final int CHUNK_SHIFT = 27; // 2^27 entries per mapping keeps each one at 1 GiB, under the 2 GiB cap
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    private static final int MAX_INTERPOLATION_PROBES = 8;
+    private static final int BINARY_SEARCH_RANGE = 64;
+
+    private static final LongAdder checkedPasswords = new LongAdder();
+    private static final LongAdder breachedPasswords = new LongAdder();
+    private static volatile Mapping mapping;
+
+    /**
+     * Maps the hash file. A blank path disables the check.
+     *
+     * @throws IllegalStateException if the file cannot be read or is not a sorted array of prefixes
+     */
+    public static synchronized void open(String hashFile) {
+        if (hashFile.isEmpty()) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(Path.of(hashFile), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size == 0 || size % ENTRY_BYTES != 0) {
+                throw new IllegalStateException("Breached password file " + hashFile
+                        + " is not a non-empty array of 8-byte hash prefixes (" + size + " bytes)");
+            }
+
+            long entryCount = size / ENTRY_BYTES;
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((entryCount + CHUNK_MASK) >>> CHUNK_SHIFT)];
+
+            // Mappings stay valid after the channel is closed
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = ((long) i << CHUNK_SHIFT) * ENTRY_BYTES;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(size - offset, (CHUNK_MASK + 1) * ENTRY_BYTES));
+            }
+
+            Mapping opened = new Mapping(chunks, entryCount);
+            opened.checkSorted(hashFile);
+            mapping = opened;
+            System.out.println("Breached password check enabled: " + entryCount + " hashes in " + hashFile);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to map breached password file " + hashFile + ": " + e.getMessage());
+        }
+    }
+
+    public static boolean isBreached(String password) {
+        Mapping current = mapping;
+
+        if (current == null) {
+            return false;
+        }
+
+        checkedPasswords.increment();
+        boolean breached = current.contains(sha1Prefix(password));
+
+        if (breached) {
+            breachedPasswords.increment();
+        }
+
+        return breached;
+    }
+
+    public static long getCheckedCount() {
+        return checkedPasswords.sum();
+    }
+
+    public static long getBreachedCount() {
+        return breachedPasswords.sum();
+    }
+
+    private static long sha1Prefix(String password) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is unavailable", e); // Every Java platform must provide it
+        }
+    }
+
+    private static double toUnsignedDouble(long value) {
+        return (value >>> 1) * 2.0;
+    }
+
+    private record Mapping(MappedByteBuffer[] chunks, long entryCount) {
+
+        long entryAt(long index) {
+            return chunks[(int) (index >>> CHUNK_SHIFT)].getLong((int) ((index & CHUNK_MASK) * ENTRY_BYTES));
+        }
+
+        // Spot-checks the ends and middle rather than reading gigabytes at startup
+        void checkSorted(String hashFile) {
+            long first = entryAt(0);
+            long middle = entryAt(entryCount / 2);
+            long last = entryAt(entryCount - 1);
+
+            if (Long.compareUnsigned(first, middle) > 0 || Long.compareUnsigned(middle, last) > 0) {
+                throw new IllegalStateException("Breached password file " + hashFile + " is not sorted");
+            }
+        }
+
+        boolean contains(long target) {
+            long low = 0;
+            long high = entryCount - 1;
+            long lowValue = entryAt(low);
+            long highValue = entryAt(high);
+
+            if (Long.compareUnsigned(target, lowValue) < 0 || Long.compareUnsigned(target, highValue) > 0) {
+                return false;
+            }
+
+            int probes = 0;
+
+            while (low <= high) {
+                long index;
+
+                if (probes++ < MAX_INTERPOLATION_PROBES && high - low > BINARY_SEARCH_RANGE
+                        && Long.compareUnsigned(lowValue, highValue) < 0) {
+                    double fraction = (toUnsignedDouble(target) - toUnsignedDouble(lowValue))
+                            / (toUnsignedDouble(highValue) - toUnsignedDouble(lowValue));
+                    index = low + (long) (Math.min(1.0, Math.max(0.0, fraction)) * (high - low));
+                } else {
+                    index = (low + high) >>> 1;
+                }
+
+                long value = entryAt(index);
+                int comparison = Long.compareUnsigned(value, target);
+
+                if (comparison == 0) {
+                    return true;
+                } else if (comparison < 0) {
+                    low = index + 1;
+                    lowValue = value; // Just below the range, close enough to guide the next guess
+                } else {
+                    high = index - 1;
+                    highValue = value;
+                }
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inclusive byte range requested through an HTTP Range header (RFC 9110 section 14).
+ * <p>
+ * Parsing rules:
+ * - Only the "bytes" unit is understood; other units or malformed syntax ignore the header
+ * - Supports first-last, open-ended (first-) and suffix (-length) forms
+ * - Ranges starting beyond the end of the file are dropped; if none remain the
+ *   request is unsatisfiable
+ * - More than MAX_RANGES ranges is treated as abusive and the header is ignored
+ *
+ * @param start first byte offset
+ * @param end last byte offset (inclusive)
+ * @see FileRequestHandler
+ */
+public record ByteRange(long start, long end) {
+    private static final int MAX_RANGES = 16;
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String toContentRange(long fileSize) {
+        return "bytes " + start + "-" + end + "/" + fileSize;
+    }
+
+    /**
+     * @return the satisfiable ranges, an empty list if none are satisfiable,
+     *         or null if the header should be ignored and the full file served
+     */
+    public static List<ByteRange> parse(String rangeHeader, long fileSize) {
+        String header = rangeHeader.trim();
+
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dash = trimmed.indexOf('-');
+
+            if (dash < 0) {
+                return null;
+            }
+
+            try {
+                ByteRange range = toRange(trimmed.substring(0, dash).trim(),
+                        trimmed.substring(dash + 1).trim(), fileSize);
+
+                if (range != null) {
+                    ranges.add(range);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return ranges;
+    }
+
+    private static ByteRange toRange(String first, String last, long fileSize) {
+        if (first.isEmpty()) {
+            long suffixLength = Long.parseLong(last);
+
+            if (suffixLength <= 0 || fileSize == 0) {
+                return null;
+            }
+
+            return new ByteRange(Math.max(0, fileSize - suffixLength), fileSize - 1);
+        }
+
+        long start = Long.parseLong(first);
+        long end = last.isEmpty() ? fileSize - 1 : Math.min(Long.parseLong(last), fileSize - 1);
+
+        if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+            throw new NumberFormatException("Invalid byte range: " + first + "-" + last);
+        }
+
+        return start < fileSize ? new ByteRange(start, end) : null;
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes a "Transfer-Encoding: chunked" request body (RFC 9112 section 7.1) incrementally.
+ * Only the decoded payload is returned; chunk extensions and trailer fields are discarded.
+ * <p>
+ * Responsibilities:
+ * - Parse hexadecimal chunk sizes and enforce CRLF framing
+ * - Stop at the terminating zero-length chunk after consuming any trailers
+ * - Cap the decoded body size and the length of framing lines
+ * <p>
+ * Malformed framing raises an IOException; exceeding the size cap raises BodyLimitException.
+ *
+ * @see RequestBodyInputStream
+ * @see HttpRequestParser
+ */
+public class ChunkedInputStream extends InputStream {
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final InputStream source;
+    private final long maxBodyBytes;
+    private long chunkRemaining;
+    private long totalBytesRead;
+    private boolean finished;
+
+    public ChunkedInputStream(InputStream source, long maxBodyBytes) {
+        this.source = source;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (finished) {
+            return -1;
+        }
+
+        if (chunkRemaining == 0) {
+            startNextChunk();
+
+            if (finished) {
+                return -1;
+            }
+        }
+
+        int bytesRead = source.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+
+        if (bytesRead == -1) {
+            throw new IOException("Unexpected end of stream inside chunk");
+        }
+
+        chunkRemaining -= bytesRead;
+        totalBytesRead += bytesRead;
+
+        if (chunkRemaining == 0) {
+            expectCrlf();
+        }
+
+        return bytesRead;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void startNextChunk() throws IOException {
+        String sizeLine = readLine();
+        int extensionStart = sizeLine.indexOf(';');
+        String size = (extensionStart >= 0 ? sizeLine.substring(0, extensionStart) : sizeLine).trim();
+
+        try {
+            chunkRemaining = Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + sizeLine);
+        }
+
+        if (chunkRemaining < 0) {
+            throw new IOException("Invalid chunk size: " + sizeLine);
+        }
+
+        if (totalBytesRead + chunkRemaining > maxBodyBytes) {
+            throw new BodyLimitException(DisconnectReason.BODY_TOO_LARGE,
+                    "Chunked request body exceeds " + maxBodyBytes + " bytes");
+        }
+
+        if (chunkRemaining == 0) {
+            // Trailer section: ignore fields until the empty line that ends the message
+            while (!readLine().isEmpty()) {
+                continue;
+            }
+            finished = true;
+        }
+    }
+
+    private void expectCrlf() throws IOException {
+        if (source.read() != '\r' || source.read() != '\n') {
+            throw new IOException("Missing CRLF after chunk data");
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int current;
+
+        while ((current = source.read()) != -1) {
+            if (current == '\r') {
+                if (source.read() != '\n') {
+                    throw new IOException("Malformed chunk framing line");
+                }
+                return line.toString(StandardCharsets.US_ASCII);
+            }
+
+            line.write(current);
+
+            if (line.size() > MAX_LINE_LENGTH) {
+                throw new IOException("Chunk framing line too long");
+            }
+        }
+
+        throw new IOException("Unexpected end of stream in chunk framing");
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes a response body with "Transfer-Encoding: chunked" (RFC 9112 section 7.1) as it is written.
+ * Used for streamed bodies whose length is unknown when the head is sent.
+ * <p>
+ * Responsibilities:
+ * - Buffer writes and emit them as chunks of up to CHUNK_SIZE bytes
+ * - Notify a progress listener after each chunk reaches the connection
+ * - Write the terminating zero-length chunk only when finish() is called
+ * <p>
+ * If the body writer fails part-way, finish() is never called and the connection closes
+ * without the terminating chunk, so the client can tell the body was truncated.
+ * The target should be buffered so each chunk's framing and data leave in one write.
+ * Closing this stream does not close the underlying connection.
+ *
+ * @see ResponseWriter
+ * @see ChunkedInputStream
+ */
+public class ChunkedOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream target;
+    private final Runnable onChunkWritten;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int buffered;
+    private boolean finished;
+
+    public ChunkedOutputStream(OutputStream target, Runnable onChunkWritten) {
+        this.target = target;
+        this.onChunkWritten = onChunkWritten;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (buffered == buffer.length) {
+            writeChunk();
+        }
+
+        buffer[buffered++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (buffered == buffer.length) {
+                writeChunk();
+            }
+
+            int copied = Math.min(length, buffer.length - buffered);
+            System.arraycopy(bytes, offset, buffer, buffered, copied);
+            buffered += copied;
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+    }
+
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+
+        writeChunk();
+        target.write(LAST_CHUNK);
+        target.flush();
+        finished = true;
+    }
+
+    // The connection is owned by HttpServer, so closing the body must not close it
+    @Override
+    public void close() {
+    }
+
+    private void writeChunk() throws IOException {
+        if (finished) {
+            throw new IOException("Chunked body already finished");
+        }
+
+        if (buffered == 0) {
+            return;
+        }
+
+        target.write(Integer.toHexString(buffered).getBytes(StandardCharsets.US_ASCII));
+        target.write(CRLF);
+        target.write(buffer, 0, buffered);
+        target.write(CRLF);
+        target.flush();
+        buffered = 0;
+        onChunkWritten.run();
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One accepted client connection, over either TCP or a Unix domain socket, so the request
+ * pipeline in HttpServer runs unchanged on both listeners.
+ * <p>
+ * Responsibilities:
+ * - Expose the connection's streams and, where available, its channel for gathering writes
+ * - Apply the idle read timeout: SO_TIMEOUT on TCP, a watchdog check on Unix domain sockets
+ * - Report the client address used for rate limiting, from the proxy's forwarding header
+ *   on Unix domain sockets
+ * - Close the connection idempotently from the handler or the watchdog
+ * <p>
+ * Unix domain channels have no socket adaptor and so no SO_TIMEOUT. Instead a periodic check
+ * closes the channel once a single read has blocked for longer than the idle timeout, and the
+ * blocked read then fails with SocketTimeoutException, just as it would on TCP.
+ *
+ * @see HttpServer
+ * @see RequestReadLimits
+ */
+public class ClientConnection implements Closeable {
+    // Socket address of every Unix domain peer; the real client comes from the proxy's header
+    public static final String UNIX_DOMAIN_ADDRESS = "unix";
+
+    private final Socket socket;
+    private final SocketChannel channel;
+    private final ScheduledExecutorService watchdog;
+    private volatile long readStartedNanos; // 0 while no read is blocked
+    private volatile boolean readTimedOut;
+    private ScheduledFuture<?> idleCheck;
+
+    private ClientConnection(Socket socket, SocketChannel channel, ScheduledExecutorService watchdog) {
+        this.socket = socket;
+        this.channel = channel;
+        this.watchdog = watchdog;
+    }
+
+    public static ClientConnection tcp(SocketChannel channel) {
+        return new ClientConnection(channel.socket(), channel, null);
+    }
+
+    public static ClientConnection unixDomain(SocketChannel channel, ScheduledExecutorService watchdog) {
+        return new ClientConnection(null, channel, watchdog);
+    }
+
+    public boolean isUnixDomain() {
+        return socket == null;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public String getRemoteAddress() {
+        return isUnixDomain() ? UNIX_DOMAIN_ADDRESS : socket.getInetAddress().getHostAddress();
+    }
+
+    /**
+     * Returns the address that identifies the client for rate limiting. The only peer on the
+     * Unix domain listener is the trusted local proxy, so there the client is taken from the
+     * proxy's forwarding header; on TCP the header is ignored, since any client could set it.
+     *
+     * @param forwardedForHeader header naming the client, e.g. X-Real-IP or X-Forwarded-For
+     */
+    public String getClientAddress(HttpRequest request, String forwardedForHeader) {
+        if (!isUnixDomain()) {
+            return getRemoteAddress();
+        }
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(forwardedForHeader) && !header.getValue().isBlank()) {
+                // X-Forwarded-For lists hops oldest first; the last is the peer the proxy itself saw
+                String[] hops = header.getValue().split(",");
+                return hops[hops.length - 1].trim();
+            }
+        }
+
+        return getRemoteAddress();
+    }
+
+    public void setReadTimeout(int timeoutMillis) throws IOException {
+        if (!isUnixDomain()) {
+            socket.setSoTimeout(timeoutMillis);
+            return;
+        }
+
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long checkIntervalMillis = Math.max(1, timeoutMillis / 4);
+
+        synchronized (this) {
+            if (idleCheck != null) {
+                idleCheck.cancel(false);
+            }
+
+            idleCheck = watchdog.scheduleAtFixedRate(() -> {
+                long startedNanos = readStartedNanos;
+
+                if (startedNanos != 0 && System.nanoTime() - startedNanos > timeoutNanos) {
+                    readTimedOut = true;
+                    closeQuietly();
+                }
+            }, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public InputStream getInputStream() throws IOException {
+        return isUnixDomain() ? new TimedChannelInputStream() : socket.getInputStream();
+    }
+
+    public OutputStream getOutputStream() throws IOException {
+        return isUnixDomain() ? Channels.newOutputStream(channel) : socket.getOutputStream();
+    }
+
+    public boolean isClosed() {
+        return !channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (idleCheck != null) {
+                idleCheck.cancel(false);
+                idleCheck = null;
+            }
+        }
+
+        channel.close();
+    }
+
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // Already closed or broken; nothing further to release
+        }
+    }
+
+    // Marks each read as in progress for the idle check, and reports a read it cut short as a timeout
+    private class TimedChannelInputStream extends InputStream {
+        private final InputStream source = Channels.newInputStream(channel);
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            readStartedNanos = System.nanoTime();
+
+            try {
+                return source.read(buffer, offset, length);
+            } catch (ClosedChannelException e) {
+                if (readTimedOut) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                throw e;
+            } finally {
+                readStartedNanos = 0;
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            ClientConnection.this.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Checked exception thrown when a client breaches one of the RequestReadLimits
+ * (timeouts, minimum transfer rate, header count or size) while a request is being read.
+ * <p>
+ * Extends HttpParsingException so existing parsing error handling still applies,
+ * while carrying the DisconnectReason used for connection-cut counters. The breach is
+ * counted when the exception is created, matching BodyLimitException.
+ *
+ * @see RequestReadLimits
+ * @see DisconnectReason
+ * @see HttpRequestParser
+ * @see BodyLimitException
+ */
+public class ConnectionLimitException extends HttpParsingException {
+    private final DisconnectReason reason;
+
+    public ConnectionLimitException(DisconnectReason reason, String message) {
+        super(message);
+        this.reason = reason;
+        reason.record();
+    }
+
+    public DisconnectReason getReason() {
+        return reason;
+    }
+}
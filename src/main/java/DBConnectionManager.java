@@ -1,35 +1,402 @@
-import io.github.cdimascio.dotenv.Dotenv;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Manages database connections using environment-based configuration.
- * Loads connection parameters once at startup for performance optimization.
+ * Manages database connections to a primary and optional read replicas, each through a
+ * small bounded connection pool. Configuration comes from ServerConfig and the pools are
+ * warmed during server startup, so no user request pays for driver loading or the first
+ * connection handshake.
  * <p>
  * Responsibilities:
- * - Load database configuration from environment variables
- * - Provide new database connections on demand
- * - Build PostgreSQL connection URLs from configuration components
+ * - Open warm connections eagerly at startup
+ * - Lend pooled connections on demand, bounded by the configured pool size
+ * - Return connections to the pool when callers close them (try-with-resources)
+ * - Validate connections that have been idle before lending them again
+ * - Route replica reads to the least-loaded healthy replica, round-robin between equals
+ * - Skip a failed replica for a cooldown, falling back to other replicas or the primary
+ * - Track recent writes so reads of just-written data stay on the primary (read-your-writes)
+ * - Close pooled connections and refuse new ones once the server has shut down
+ * <p>
+ * Callers keep using getConnection() in try-with-resources; the returned connection is a
+ * proxy whose close() hands the physical connection back instead of closing it. Replicas
+ * are opt-in per query via getReplicaConnection(); with no replicas configured it is the
+ * same as getConnection(). Replicas lag the primary, so UserDAO records each write and
+ * checks hasRecentWrite() before reading from a replica.
  *
  * @see UserDAO
+ * @see ServerConfig
  */
 public class DBConnectionManager {
-    private static final String CONNECTION_URL;
-    private static final String DB_USER;
-    private static final String DB_PASSWORD;
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final int RECENT_WRITE_CLEANUP_INTERVAL = 1_000;
 
-    static {
-        Dotenv dotenv = Dotenv.load();
+    private static final ServerConfig.DatabaseSettings settings = ServerConfig.get().database();
+    private static final long READ_YOUR_WRITES_NANOS = TimeUnit.MILLISECONDS.toNanos(settings.readYourWritesMillis());
+    private static final long REPLICA_RETRY_NANOS = TimeUnit.SECONDS.toNanos(settings.replicaRetrySeconds());
+    private static final Pool primary = new Pool("primary", settings.connectionUrl());
+    private static final List<Pool> replicas = settings.replicaUrls().stream()
+            .map(url -> new Pool("replica " + url, url))
+            .toList();
+    private static final AtomicInteger nextReplica = new AtomicInteger();
 
-        CONNECTION_URL = String.format("jdbc:postgresql://%s:%s/%s",
-                dotenv.get("DB_URL"), dotenv.get("DB_PORT"), dotenv.get("DB_NAME")
-        );
-        DB_USER = dotenv.get("DB_USER");
-        DB_PASSWORD = dotenv.get("DB_PASSWORD");
-    }
+    // User ids, usernames and emails written within the read-your-writes window, mapped to System.nanoTime()
+    private static final Map<Object, Long> recentWrites = new ConcurrentHashMap<>();
+    private static final AtomicLong recentWriteCounter = new AtomicLong();
+    private static volatile long lastWriteNanos = System.nanoTime() - READ_YOUR_WRITES_NANOS;
+
+    private static final LongAdder replicaReads = new LongAdder();
+    private static final LongAdder primaryFallbacks = new LongAdder();
+    private static volatile boolean shutDown;
 
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(CONNECTION_URL, DB_USER, DB_PASSWORD);
+        checkNotShutDown();
+        return primary.borrow();
+    }
+
+    /**
+     * Lends a connection to the least-loaded healthy replica, or to the primary if no replica
+     * is configured, healthy or free. Only use it for reads that tolerate replication lag.
+     */
+    public Connection getReplicaConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            return getConnection();
+        }
+
+        checkNotShutDown();
+
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Pool replica = getLeastLoadedHealthyReplica();
+
+            if (replica == null) {
+                break;
+            }
+
+            try {
+                Connection connection = replica.tryBorrow();
+
+                if (connection == null) {
+                    break; // The least-loaded replica is full, so every replica is
+                }
+
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+
+        primaryFallbacks.increment();
+        return primary.borrow();
+    }
+
+    /**
+     * Records a committed write so that replica reads of the same user, and of user lists,
+     * are sent to the primary until the replicas have had time to catch up. A rename passes
+     * the old value too, so a lagging replica can't still resolve it to this user.
+     */
+    public static void recordWrite(int userId, String... usernamesAndEmails) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        lastWriteNanos = now;
+        recentWrites.put(userId, now);
+        for (String usernameOrEmail : usernamesAndEmails) {
+            recentWrites.put(usernameOrEmail, now);
+        }
+
+        if (recentWriteCounter.incrementAndGet() % RECENT_WRITE_CLEANUP_INTERVAL == 0) {
+            recentWrites.values().removeIf(writtenNanos -> now - writtenNanos > READ_YOUR_WRITES_NANOS);
+        }
+    }
+
+    /**
+     * @return true if any user was written within the read-your-writes window
+     */
+    public static boolean hasRecentWrites() {
+        return !replicas.isEmpty() && System.nanoTime() - lastWriteNanos <= READ_YOUR_WRITES_NANOS;
+    }
+
+    /**
+     * @return true if the user was written within the read-your-writes window
+     */
+    public static boolean hasRecentWrite(int userId) {
+        return isRecent(recentWrites.get(userId));
+    }
+
+    /**
+     * @return true if a user with this username or email was written within the read-your-writes window
+     */
+    public static boolean hasRecentWrite(String usernameOrEmail) {
+        return isRecent(recentWrites.get(usernameOrEmail));
+    }
+
+    /**
+     * Opens the configured number of idle connections ahead of the first request. A replica
+     * that cannot be reached is marked down rather than failing startup.
+     *
+     * @return the number of connections opened
+     */
+    public static int warmUp() throws SQLException {
+        int opened = primary.warmUp();
+
+        for (Pool replica : replicas) {
+            try {
+                opened += replica.warmUp();
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+
+        return opened;
+    }
+
+    // Called once in-flight requests have drained during server shutdown
+    public static void shutdown() {
+        shutDown = true;
+        primary.closeIdleConnections();
+        replicas.forEach(Pool::closeIdleConnections);
+    }
+
+    public static int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public static long getReplicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    public static long getPrimaryFallbackCount() {
+        return primaryFallbacks.sum();
+    }
+
+    private static boolean isRecent(Long writtenNanos) {
+        return writtenNanos != null && System.nanoTime() - writtenNanos <= READ_YOUR_WRITES_NANOS;
+    }
+
+    private static void checkNotShutDown() throws SQLException {
+        if (shutDown) {
+            throw new SQLException("Connection manager has been shut down");
+        }
+    }
+
+    // Starts the scan at a rotating offset so replicas with equal load take turns
+    private static Pool getLeastLoadedHealthyReplica() {
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        Pool leastLoaded = null;
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Pool replica = replicas.get((start + i) % replicas.size());
+
+            if (replica.isHealthy() && (leastLoaded == null || replica.getInUseCount() < leastLoaded.getInUseCount())) {
+                leastLoaded = replica;
+            }
+        }
+
+        return leastLoaded;
+    }
+
+    private static Connection wrap(Pool pool, Connection physical) {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (closed.compareAndSet(false, true)) {
+                                pool.release(physical);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return closed.get() || physical.isClosed();
+                        }
+                        case "unwrap", "isWrapperFor" -> {
+                            if (((Class<?>) args[0]).isInstance(physical)) {
+                                return method.getName().equals("unwrap") ? physical : true;
+                            }
+                        }
+                        default -> {
+                            if (closed.get()) {
+                                throw new SQLException("Connection has been returned to the pool");
+                            }
+                        }
+                    }
+
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Connection is being discarded; a failed close leaves nothing to recover
+        }
+    }
+
+    /**
+     * Connection pool for a single database endpoint, with the health state used to fail
+     * over away from it. Only replicas are ever marked down; the primary has no alternative.
+     */
+    private static class Pool {
+        private final String name;
+        private final String url;
+        private final Semaphore connectionPermits = new Semaphore(settings.poolSize());
+        private final BlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+        private volatile long downUntilNanos;
+        private volatile boolean down;
+
+        Pool(String name, String url) {
+            this.name = name;
+            this.url = url;
+        }
+
+        Connection borrow() throws SQLException {
+            try {
+                if (!connectionPermits.tryAcquire(settings.poolTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new SQLException("Timed out waiting for a pooled database connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection");
+            }
+
+            return borrowWithPermit();
+        }
+
+        // Never waits: a full replica pool is a reason to try elsewhere, not to queue
+        Connection tryBorrow() throws SQLException {
+            return connectionPermits.tryAcquire() ? borrowWithPermit() : null;
+        }
+
+        int warmUp() throws SQLException {
+            int opened = 0;
+
+            while (idleConnections.size() < settings.minIdle()) {
+                idleConnections.offerLast(new IdleConnection(openPhysicalConnection(), System.nanoTime()));
+                opened++;
+            }
+
+            return opened;
+        }
+
+        boolean isHealthy() {
+            return !down || System.nanoTime() - downUntilNanos >= 0;
+        }
+
+        int getInUseCount() {
+            return settings.poolSize() - connectionPermits.availablePermits();
+        }
+
+        void markDown(Exception cause) {
+            downUntilNanos = System.nanoTime() + REPLICA_RETRY_NANOS;
+
+            if (!down) {
+                down = true;
+                System.err.println("Database " + name + " marked down for " + settings.replicaRetrySeconds()
+                        + "s: " + cause.getMessage());
+            }
+
+            closeIdleConnections();
+        }
+
+        void closeIdleConnections() {
+            IdleConnection idle;
+
+            while ((idle = idleConnections.pollFirst()) != null) {
+                closeQuietly(idle.connection());
+            }
+        }
+
+        private Connection borrowWithPermit() throws SQLException {
+            try {
+                Connection connection = wrap(this, borrowPhysicalConnection());
+
+                if (down) {
+                    down = false;
+                    System.out.println("Database " + name + " is back up");
+                }
+
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                connectionPermits.release();
+                throw e;
+            }
+        }
+
+        private Connection borrowPhysicalConnection() throws SQLException {
+            IdleConnection idle;
+
+            while ((idle = idleConnections.pollFirst()) != null) {
+                boolean needsValidation = System.nanoTime() - idle.idleSinceNanos() > VALIDATE_AFTER_IDLE_NANOS;
+
+                if (!needsValidation || idle.connection().isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return idle.connection();
+                }
+
+                closeQuietly(idle.connection());
+            }
+
+            return openPhysicalConnection();
+        }
+
+        private Connection openPhysicalConnection() throws SQLException {
+            return DriverManager.getConnection(url, settings.user(), settings.password());
+        }
+
+        private void release(Connection physical) {
+            try {
+                if (physical.isClosed()) {
+                    // The driver closes a connection after a fatal I/O error, so stop routing reads here
+                    if (this != primary && !shutDown) {
+                        markDown(new SQLException("connection lost"));
+                    }
+                    return;
+                }
+
+                if (shutDown) {
+                    closeQuietly(physical);
+                    return;
+                }
+
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+
+                // LIFO so the most recently used (warmest) connections are reused first
+                idleConnections.offerFirst(new IdleConnection(physical, System.nanoTime()));
+            } catch (SQLException e) {
+                closeQuietly(physical);
+            } finally {
+                connectionPermits.release();
+            }
+        }
+    }
+
+    private record IdleConnection(Connection connection, long idleSinceNanos) {
     }
 }
@@ -0,0 +1,33 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reasons the server cuts a client connection before completing a request,
+ * each with a running count of how often it has happened.
+ * <p>
+ * Counts are process-wide and only ever increase; they exist so operators can tell
+ * slow or abusive clients apart from genuine parsing failures.
+ *
+ * @see RequestReadLimits
+ * @see HttpRequestParser
+ * @see HttpServer
+ */
+public enum DisconnectReason {
+    IDLE_TIMEOUT,
+    HEADER_TIMEOUT,
+    BODY_TIMEOUT,
+    WRITE_TIMEOUT,
+    TRANSFER_RATE_TOO_LOW,
+    BODY_TOO_LARGE,
+    TOO_MANY_HEADERS,
+    HEADERS_TOO_LARGE;
+
+    private final LongAdder count = new LongAdder();
+
+    public void record() {
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,25 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for user lifecycle events relayed from the outbox by OutboxRelay.
+ * <p>
+ * A batch counts as delivered only once publish() returns, after which the events are
+ * deleted from the outbox; throwing leaves them in place to be retried. Sinks should make
+ * the batch durable (or hand it off) before returning, and may see a batch again after a
+ * failure or crash.
+ *
+ * @see OutboxRelay
+ * @see FileEventSink
+ * @see SocketEventSink
+ * @see InMemoryEventSink
+ */
+public interface EventSink extends Closeable {
+
+    void publish(List<OutboxEvent> events) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * EventSink that appends events as JSON lines to a file, forcing each batch to disk before
+ * reporting it delivered.
+ *
+ * @see EventSink
+ * @see OutboxRelay
+ */
+public class FileEventSink implements EventSink {
+    private final Path path;
+    private FileChannel channel; // guarded by this
+
+    public FileEventSink(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        if (channel == null) {
+            Path directory = path.toAbsolutePath().getParent();
+
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        StringBuilder lines = new StringBuilder();
+        events.forEach(event -> lines.append(event.toJsonLine()));
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false); // The relay deletes the events once this returns
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "file:" + path;
+    }
+}
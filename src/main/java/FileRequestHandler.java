@@ -1,7 +1,14 @@
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Handles HTTP requests for static files and resources.
@@ -11,29 +18,40 @@ import java.util.List;
  * Responsibilities:
  * - Serve static files from the filesystem
  * - Set appropriate Content-Type headers based on file type
- * - Enforce session-based access control for restricted paths
+ * - Serve single and multi-range requests (206/416), honouring If-Range validators
+ * - Stream file content from disk via BodySegments rather than loading it onto the heap
+ * - Serve AssetPipeline output: rewritten pages, and fingerprinted bundles cached as immutable
+ * - Answer If-None-Match revalidation with 304
+ * - Enforce session-based access control for restricted paths, using the RequestContext's session
  * - Generate HTML error responses for file-related failures
  *
  * @see HttpResponseBuilder
  * @see SessionManager
+ * @see RequestContext
+ * @see ByteRange
+ * @see AssetPipeline
  */
 public class FileRequestHandler {
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final DateTimeFormatter LAST_MODIFIED_FORMATTER =
+            DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final List<String> restrictedPaths = List.of("user-area", "profile");
+    private final RequestContext context;
     private final HttpRequest request;
     private final HttpResponseBuilder responseBuilder;
-    private final List<String> restrictedPaths = List.of("user-area", "profile");
-    private SessionData activeSession;
 
-    public FileRequestHandler(HttpRequest request) {
-        this.request = request;
+    public FileRequestHandler(RequestContext context) {
+        this.context = context;
+        request = context.getRequest();
         responseBuilder = new HttpResponseBuilder();
     }
 
     public HttpResponse getResponse() {
-        boolean hasActiveSession = setupSessionIfCookie();
         String pathString = request.getPath();
         Path path = Path.of(pathString.equals("/") ? "src/index.html" : pathString.substring(1));
 
-        if (isRestrictedPath(pathString) && !hasActiveSession) {
+        // Only restricted paths need the session, so public files skip the lookup entirely
+        if (isRestrictedPath(pathString) && !context.hasActiveSession()) {
             return generateErrorResponse(401);
         } else {
             try {
@@ -44,16 +62,6 @@ public class FileRequestHandler {
         }
     }
 
-    private boolean setupSessionIfCookie() {
-        String cookie = request.getHeader("Cookie");
-
-        if (cookie != null) {
-            activeSession = SessionManager.getActiveSession(cookie);
-        }
-
-        return activeSession != null;
-    }
-
     private boolean isRestrictedPath(String path) {
         for (String restrictedPath : restrictedPaths) {
             if (path.contains(restrictedPath)) {
@@ -63,25 +71,105 @@ public class FileRequestHandler {
         return false;
     }
 
-    private HttpResponse handleFileRequest(Path path) throws IOException {
+    private HttpResponse handleFileRequest(Path requestedPath) throws IOException {
+        Path path = AssetPipeline.resolve(requestedPath);
+
         if (Files.isReadable(path)) {
             String contentType = Files.probeContentType(path);
 
             if (contentType == null) {
                 return generateErrorResponse(500);
             } else {
-                byte[] responseBody = Files.readAllBytes(path);
-                return responseBuilder.version("HTTP/1.1")
-                        .status(200)
-                        .header("Content-Type", contentType)
-                        .body(responseBody)
-                        .build();
+                long fileSize = Files.size(path);
+                Instant lastModified = Files.getLastModifiedTime(path).toInstant().truncatedTo(ChronoUnit.SECONDS);
+                String eTag = "\"" + Long.toHexString(fileSize) + "-" + Long.toHexString(lastModified.getEpochSecond()) + "\"";
+                String lastModifiedHttp = LAST_MODIFIED_FORMATTER.format(lastModified);
+
+                responseBuilder.version("HTTP/1.1")
+                        .header("Accept-Ranges", "bytes")
+                        .header("ETag", eTag)
+                        .header("Last-Modified", lastModifiedHttp);
+
+                // Pages must be revalidated so they pick up new fingerprinted asset names after a deploy
+                if (AssetPipeline.isFingerprinted(requestedPath)) {
+                    responseBuilder.header("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+                } else if (contentType.equals("text/html")) {
+                    responseBuilder.header("Cache-Control", "no-cache");
+                }
+
+                if (eTag.equals(request.getHeader("If-None-Match"))) {
+                    return responseBuilder.status(304).build();
+                }
+
+                List<ByteRange> ranges = getRequestedRanges(fileSize, eTag, lastModifiedHttp);
+
+                if (ranges == null) {
+                    return responseBuilder.status(200)
+                            .header("Content-Type", contentType)
+                            .bodySegments(List.of(BodySegment.ofFile(path, 0, fileSize)))
+                            .build();
+                } else if (ranges.isEmpty()) {
+                    responseBuilder.header("Content-Range", "bytes */" + fileSize);
+                    return generateErrorResponse(416);
+                } else if (ranges.size() == 1) {
+                    return generateSingleRangeResponse(path, contentType, fileSize, ranges.get(0));
+                } else {
+                    return generateMultiRangeResponse(path, contentType, fileSize, ranges);
+                }
             }
         } else {
             return generateErrorResponse(404);
         }
     }
 
+    /**
+     * @return the ranges to serve, an empty list if unsatisfiable, or null to serve the full file
+     */
+    private List<ByteRange> getRequestedRanges(long fileSize, String eTag, String lastModifiedHttp) {
+        String rangeHeader = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+
+        if (rangeHeader == null || !request.getMethod().equals("GET")) {
+            return null;
+        }
+
+        // If-Range: only honour the range when the client's copy is still current
+        if (ifRange != null && !ifRange.equals(eTag) && !ifRange.equals(lastModifiedHttp)) {
+            return null;
+        }
+
+        return ByteRange.parse(rangeHeader, fileSize);
+    }
+
+    private HttpResponse generateSingleRangeResponse(Path path, String contentType, long fileSize, ByteRange range) {
+        return responseBuilder.status(206)
+                .header("Content-Type", contentType)
+                .header("Content-Range", range.toContentRange(fileSize))
+                .bodySegments(List.of(BodySegment.ofFile(path, range.start(), range.length())))
+                .build();
+    }
+
+    private HttpResponse generateMultiRangeResponse(Path path, String contentType, long fileSize,
+                                                    List<ByteRange> ranges) {
+        String boundary = "range_" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<BodySegment> segments = new ArrayList<>();
+
+        for (ByteRange range : ranges) {
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + range.toContentRange(fileSize) + "\r\n\r\n";
+
+            segments.add(BodySegment.ofBytes(partHeader.getBytes(StandardCharsets.US_ASCII)));
+            segments.add(BodySegment.ofFile(path, range.start(), range.length()));
+        }
+        segments.add(BodySegment.ofBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII)));
+
+        return responseBuilder.status(206)
+                .header("Content-Type", "multipart/byteranges; boundary=" + boundary)
+                .bodySegments(segments)
+                .build();
+    }
+
     private HttpResponse generateErrorResponse(int statusCode) {
         return responseBuilder.version("HTTP/1.1")
                 .status(statusCode)
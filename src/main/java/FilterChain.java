@@ -0,0 +1,32 @@
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Walks one request through an ordered list of HttpFilters and then the handler.
+ * Created per request; the filter list itself is shared and immutable.
+ * <p>
+ * Responsibilities:
+ * - Invoke each filter in turn, passing itself so the filter can continue the chain
+ * - Invoke the handler once every filter has passed the request on
+ *
+ * @see HttpFilter
+ * @see HttpRequestHandler
+ */
+public class FilterChain {
+    private final List<HttpFilter> filters;
+    private final Function<RequestContext, HttpResponse> handler;
+    private int position;
+
+    public FilterChain(List<HttpFilter> filters, Function<RequestContext, HttpResponse> handler) {
+        this.filters = filters;
+        this.handler = handler;
+    }
+
+    public HttpResponse proceed(RequestContext context) {
+        if (position < filters.size()) {
+            return filters.get(position++).filter(context, this);
+        }
+
+        return handler.apply(context);
+    }
+}
@@ -0,0 +1,115 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom Java Flight Recorder events for the request lifecycle, so recordings show where a
+ * request spent its time next to the JVM's own GC, lock and virtual-thread events.
+ * <p>
+ * Responsibilities:
+ * - ConnectionAccept: from accept() returning to the handler's virtual thread starting,
+ *   which grows when carrier threads are starved
+ * - RequestParse: reading and parsing the request head (and buffered body)
+ * - RouteDispatch: routing and handling, tagged with the UserRoute or static file path
+ * - DatabaseQuery: one JDBC statement, tagged with the DAO query name
+ * - PasswordVerify: one bcrypt comparison
+ * - ResponseWrite: writing the response to the socket
+ * <p>
+ * Events cost almost nothing unless a recording enables them, e.g.
+ * -XX:StartFlightRecording:filename=server.jfr, and are all in the "User Management"
+ * category. Stack traces are off to keep them cheap; VirtualThreadPinningMonitor covers
+ * the pinning cases that need one.
+ *
+ * @see HttpServer
+ * @see HttpRequestHandler
+ * @see UserDAO
+ * @see PasswordUtil
+ * @see VirtualThreadPinningMonitor
+ */
+public class FlightEvents {
+
+    @Name("usermanagement.ConnectionAccept")
+    @Label("Connection Accept")
+    @Description("Delay between accepting a connection and its handler thread starting")
+    @Category({"User Management", "HTTP"})
+    @StackTrace(false)
+    public static class ConnectionAccept extends Event {
+        @Label("Remote Address")
+        public String remoteAddress;
+
+        @Label("Admitted")
+        @Description("False if the connection limit was reached and the connection got a 503")
+        public boolean admitted;
+    }
+
+    @Name("usermanagement.RequestParse")
+    @Label("Request Parse")
+    @Category({"User Management", "HTTP"})
+    @StackTrace(false)
+    public static class RequestParse extends Event {
+        @Label("Method")
+        public String method;
+
+        @Label("Path")
+        public String path;
+    }
+
+    @Name("usermanagement.RouteDispatch")
+    @Label("Route Dispatch")
+    @Category({"User Management", "HTTP"})
+    @StackTrace(false)
+    public static class RouteDispatch extends Event {
+        @Label("Route")
+        @Description("UserRoute name, or STATIC_FILE")
+        public String route;
+
+        @Label("Admitted")
+        @Description("False if admission control shed the request")
+        public boolean admitted;
+
+        @Label("Status Code")
+        public int statusCode;
+    }
+
+    @Name("usermanagement.DatabaseQuery")
+    @Label("Database Query")
+    @Category({"User Management", "Database"})
+    @StackTrace(false)
+    public static class DatabaseQuery extends Event {
+        @Label("Query Name")
+        public String queryName;
+
+        @Label("Virtual Thread")
+        public boolean virtualThread;
+    }
+
+    @Name("usermanagement.PasswordVerify")
+    @Label("Password Verify")
+    @Category({"User Management", "Security"})
+    @StackTrace(false)
+    public static class PasswordVerify extends Event {
+        @Label("Matched")
+        public boolean matched;
+    }
+
+    @Name("usermanagement.ResponseWrite")
+    @Label("Response Write")
+    @Category({"User Management", "HTTP"})
+    @StackTrace(false)
+    public static class ResponseWrite extends Event {
+        @Label("Status Code")
+        public int statusCode;
+
+        @Label("Body Size")
+        @Description("Buffered body size; -1 for streamed bodies")
+        @DataAmount
+        public long bodyBytes;
+
+        @Label("Streaming")
+        public boolean streaming;
+    }
+}
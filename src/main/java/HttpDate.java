@@ -0,0 +1,48 @@
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Supplies the current time as an RFC 1123 HTTP date, formatted at most once per second.
+ * Every response carries a Date header, so formatting it per response (with a zone lookup)
+ * is wasted work when the value only changes once a second.
+ * <p>
+ * The cached value is an immutable snapshot swapped atomically, so concurrent readers
+ * never see a string and byte form from different seconds.
+ *
+ * @see HttpRequestHandler
+ * @see ResponseWriter
+ */
+public class HttpDate {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static volatile Snapshot current = format(System.currentTimeMillis() / 1000);
+
+    public static String now() {
+        return currentSnapshot().value();
+    }
+
+    public static byte[] nowBytes() {
+        return currentSnapshot().bytes();
+    }
+
+    private static Snapshot currentSnapshot() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        Snapshot snapshot = current;
+
+        if (snapshot.epochSecond() != epochSecond) {
+            snapshot = format(epochSecond);
+            current = snapshot;
+        }
+
+        return snapshot;
+    }
+
+    private static Snapshot format(long epochSecond) {
+        String value = FORMATTER.format(Instant.ofEpochSecond(epochSecond));
+        return new Snapshot(epochSecond, value, value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private record Snapshot(long epochSecond, String value, byte[] bytes) {
+    }
+}
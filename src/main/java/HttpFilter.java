@@ -0,0 +1,18 @@
+/**
+ * A cross-cutting step around request handling, such as admission control, metrics,
+ * authentication or compression. Filters run in order inside HttpRequestHandler, each
+ * deciding whether to pass the request on.
+ * <p>
+ * A filter either returns its own response without calling the chain (short-circuiting
+ * everything after it), or calls chain.proceed(context) once and may inspect or adjust the
+ * response on the way back out. Work worth sharing with later filters and handlers belongs
+ * in the RequestContext rather than being recomputed.
+ *
+ * @see FilterChain
+ * @see RequestContext
+ * @see HttpRequestHandler
+ */
+@FunctionalInterface
+public interface HttpFilter {
+    HttpResponse filter(RequestContext context, FilterChain chain);
+}
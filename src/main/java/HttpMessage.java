@@ -15,9 +15,12 @@ import java.util.Map;
  * <p>
  * Subclasses implement getStartLine() to define request line vs status line format.
  * Body stored as byte[] to support both text and binary content without data corruption.
+ * Responses are written to the network by ResponseWriter, which avoids the header/body
+ * copy made by getBytes().
  *
  * @see HttpRequest
  * @see HttpResponse
+ * @see ResponseWriter
  */
 public abstract class HttpMessage {
     private Map<String, String> headers;
@@ -71,12 +74,12 @@ public abstract class HttpMessage {
     public byte[] getHeaderBytes() {
         StringBuilder sb = new StringBuilder();
 
-        sb.append(getStartLine()).append("\n");
+        sb.append(getStartLine()).append("\r\n");
         headers.forEach((k, v) -> sb.append(k)
                 .append(": ")
                 .append(v)
-                .append("\n"));
-        sb.append("\n");
+                .append("\r\n"));
+        sb.append("\r\n");
 
         return sb.toString().getBytes(StandardCharsets.UTF_8);
     }
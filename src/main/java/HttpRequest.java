@@ -1,10 +1,20 @@
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * HTTP request message containing method, path, version, headers, and body.
  * Extends HttpMessage to inherit common header and body handling functionality.
  * Implements HTTP/1.1 protocol specification for request formatting.
  * <p>
  * Responsibilities:
- * - Store HTTP request line components (method, path, version)
+ * - Store HTTP request line components (method, path, query string, version)
+ * - Decode query parameters on first use
+ * - Record the client address the request arrived from
+ * - Expose the body as a stream, which is the live connection for streaming routes
  * - Format request line for HTTP message transmission
  * - Provide convenient access to request-specific data
  *
@@ -14,7 +24,11 @@
 public class HttpRequest extends HttpMessage {
     private String method;
     private String path;
+    private String query;
+    private Map<String, String> queryParameters;
     private String version;
+    private String remoteAddress;
+    private InputStream bodyStream;
 
     public String getMethod() {
         return method != null ? method : "";
@@ -24,12 +38,43 @@ public class HttpRequest extends HttpMessage {
         return path != null ? path : "";
     }
 
+    public String getQuery() {
+        return query != null ? query : "";
+    }
+
+    /**
+     * Returns the decoded value of a query parameter (the first, if repeated), or null if absent.
+     */
+    public String getQueryParameter(String name) {
+        if (queryParameters == null) {
+            queryParameters = parseQuery(getQuery());
+        }
+
+        return queryParameters.get(name);
+    }
+
     public String getVersion() {
         return version != null ? version : "";
     }
 
+    public String getRemoteAddress() {
+        return remoteAddress != null ? remoteAddress : "";
+    }
+
+    /**
+     * Returns the request body as a stream. For routes that stream their body this reads
+     * directly from the connection and can only be consumed once.
+     */
+    public InputStream getBodyStream() {
+        return bodyStream != null ? bodyStream : new ByteArrayInputStream(getBodyBytes());
+    }
+
+    public boolean hasStreamingBody() {
+        return bodyStream != null;
+    }
+
     public String getStartLine() {
-        return method + " " +  path + " " + version;
+        return method + " " +  path + (query != null ? "?" + query : "") + " " + version;
     }
 
     public void setMethod(String method) {
@@ -40,7 +85,42 @@ public class HttpRequest extends HttpMessage {
         this.path = path;
     }
 
+    public void setQuery(String query) {
+        this.query = query;
+        this.queryParameters = null;
+    }
+
     public void setVersion(String version) {
         this.version = version;
     }
-}
\ No newline at end of file
+
+    public void setRemoteAddress(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    public void setBodyStream(InputStream bodyStream) {
+        this.bodyStream = bodyStream;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+
+            String[] keyValue = pair.split("=", 2);
+
+            try {
+                String key = URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8);
+                String value = keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "";
+                parameters.putIfAbsent(key, value);
+            } catch (IllegalArgumentException ignored) {
+                // Malformed percent-encoding; treat the parameter as absent
+            }
+        }
+
+        return parameters;
+    }
+}
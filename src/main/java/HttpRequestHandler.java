@@ -1,57 +1,85 @@
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 /**
  * Central HTTP request router and response coordinator for the server.
- * Routes incoming HTTP requests to appropriate handlers and finalizes responses
- * with required HTTP/1.1 headers before transmission.
+ * Runs each request through a chain of HttpFilters, routes it to the appropriate handler
+ * and finalizes the response with required HTTP/1.1 headers before transmission.
  * <p>
  * Responsibilities:
+ * - Create the request's RequestContext and run it through the filter chain
  * - Route requests to UserRequestHandler or FileRequestHandler based on path
- * - Finalize HTTP response headers (Content-Length, Date, Connection)
+ * - Finalize HTTP response headers (Content-Length or chunked Transfer-Encoding, Date, Connection)
+ *   once on whatever the chain returns, so filters that rewrite or short-circuit the response
+ *   never ship stale or missing framing headers
  * - Coordinate the complete request processing pipeline
  * <p>
+ * One instance serves every request; its filter list is fixed at construction. The default
+ * chain records a RouteDispatch flight recorder event, then applies admission control by
+ * request priority, shedding with 503 when overloaded.
+ * <p>
  * Pure routing approach: delegates all business logic and response generation
  * to specialized handlers.
  *
  * @see UserRequestHandler
  * @see FileRequestHandler
+ * @see HttpFilter
+ * @see RequestContext
+ * @see RouteDispatchFilter
+ * @see AdmissionFilter
  */
 public class HttpRequestHandler {
-    private final HttpRequest request;
-    private HttpResponse response;
+    private final List<HttpFilter> filters;
 
-    public HttpRequestHandler(HttpRequest request) {
-        this.request = request;
-        response = new HttpResponse();
+    public HttpRequestHandler(AdmissionController admissionController) {
+        this(List.of(new RouteDispatchFilter(), new AdmissionFilter(admissionController)));
     }
 
-    public HttpResponse getResponse() {
-        String path = request.getPath();
+    public HttpRequestHandler(List<HttpFilter> filters) {
+        this.filters = List.copyOf(filters);
+    }
 
-        if (path.contains("/users")) {
-            response = new UserRequestHandler(request).getResponse();
-        } else {
-            response = new FileRequestHandler(request).getResponse();
-        }
+    public HttpResponse getResponse(HttpRequest request) {
+        HttpResponse response = new FilterChain(filters, HttpRequestHandler::routeRequest)
+                .proceed(new RequestContext(request));
 
-        finalizeResponseHeaders();
+        finalizeResponseHeaders(response);
         return response;
     }
 
-    private void finalizeResponseHeaders() {
-        int responseBodyLength = response.getBodyBytes().length;
+    public static HttpResponse getServiceUnavailableResponse(int retryAfterSeconds) {
+        return new HttpResponseBuilder().version("HTTP/1.1")
+                .status(503)
+                .header("Content-Type", "text/plain")
+                .header("Retry-After", String.valueOf(retryAfterSeconds))
+                .body("503 Service Unavailable")
+                .build();
+    }
 
-        response.setHeader("Content-Length", String.valueOf(responseBodyLength));
-        response.setHeader("Date", getHttpDateTime());
-        response.setHeader("Connection", "close");
+    /**
+     * Decides, once headers are parsed, whether the request body should be streamed to the
+     * handler rather than buffered. Only user routes that declare streamsBody() qualify.
+     */
+    public static boolean isStreamingBodyRequest(HttpRequest request) {
+        return RequestContext.isUserRequest(request) && RequestContext.routeOf(request).streamsBody();
     }
 
-    private String getHttpDateTime() {
-        LocalDateTime dateTime = LocalDateTime.now();
-        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.RFC_1123_DATE_TIME;
+    private static HttpResponse routeRequest(RequestContext context) {
+        return context.isUserRequest()
+                ? new UserRequestHandler(context).getResponse()
+                : new FileRequestHandler(context).getResponse();
+    }
 
-        return dateTime.atZone(ZoneId.of("UTC")).format(dateTimeFormatter);
+    /**
+     * Sets the framing headers every response needs. getResponse() applies it to everything the
+     * chain returns; responses built outside the chain must call it themselves.
+     */
+    public static void finalizeResponseHeaders(HttpResponse response) {
+        if (response.hasStreamingBody()) {
+            response.setHeader("Transfer-Encoding", "chunked");
+        } else if (response.getStatusCode() != 304) { // A 304's Content-Length would describe the cached body
+            response.setHeader("Content-Length", String.valueOf(response.getContentLength()));
+        }
+        response.setHeader("Date", HttpDate.now());
+        response.setHeader("Connection", "close");
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,10 @@
 import java.io.*;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
@@ -10,25 +13,48 @@ import java.util.regex.Pattern;
  * Supports both text and binary request bodies without data corruption.
  * <p>
  * Responsibilities:
- * - Parse HTTP request line (method, path, version)
+ * - Parse HTTP request line (method, path and query string, version)
  * - Extract and validate HTTP headers
- * - Read request body as byte array based on Content-Length header
+ * - Read request body based on Content-Length or chunked Transfer-Encoding, either
+ *   buffered as a byte array or handed to streaming handlers as a bounded InputStream
  * - Validate all components against HTTP/1.1 specifications
  * <p>
  * Additional considerations:
  * - Strict validation: malformed requests result in HttpParsingException
- * - Memory protection: enforces 10MB body size limit
- * - Content-Length required for requests with bodies
+ * - Memory protection: enforces the configured body size limit (10MB by default, larger
+ *   for streamed bodies); buffered bodies grow as data arrives instead of being pre-allocated
+ * - Content-Length or chunked Transfer-Encoding required for requests with bodies
+ * - Slow-client protection: header/body deadlines, minimum body transfer rate and
+ *   header count/size caps from RequestReadLimits raise ConnectionLimitException
+ * <p>
+ * Deadlines are checked as bytes arrive; a client that stops sending entirely is cut
+ * by the socket idle timeout (SO_TIMEOUT), which surfaces here as a read timeout.
  *
  * @see HttpRequest
  * @see HttpParsingException
+ * @see RequestReadLimits
+ * @see RequestBodyInputStream
+ * @see ChunkedInputStream
  */
 public class HttpRequestParser {
     private final HttpRequest request;
     private final InputStream inputStream;
+    private final RequestReadLimits limits;
+    private final Predicate<HttpRequest> streamBody;
 
     public HttpRequestParser(InputStream inputStream) throws IOException {
+        this(inputStream, RequestReadLimits.defaults(), request -> false);
+    }
+
+    /**
+     * @param streamBody decides, once headers are parsed, whether the body is handed to the
+     *                   handler as a stream instead of being buffered into a byte array
+     */
+    public HttpRequestParser(InputStream inputStream, RequestReadLimits limits,
+                             Predicate<HttpRequest> streamBody) throws IOException {
         this.inputStream = inputStream;
+        this.limits = limits;
+        this.streamBody = streamBody;
         request = new HttpRequest();
     }
 
@@ -47,14 +73,25 @@ public class HttpRequestParser {
         }
     }
 
-    private String parseHeadersToString() throws IOException {
+    private String parseHeadersToString() throws IOException, HttpParsingException {
         ByteArrayOutputStream headerBuffer = new ByteArrayOutputStream();
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.headerTimeoutMillis());
         int currentByte;
         int crlfCount = 0; // Tracks position in \r\n\r\n sequence
 
-        while ((currentByte = inputStream.read()) != -1) {
+        while ((currentByte = readByte()) != -1) {
             headerBuffer.write(currentByte);
 
+            if (headerBuffer.size() > limits.maxHeaderBytes()) {
+                throw new ConnectionLimitException(DisconnectReason.HEADERS_TOO_LARGE,
+                        "Request headers exceed " + limits.maxHeaderBytes() + " bytes");
+            }
+
+            if (System.nanoTime() - deadlineNanos > 0) {
+                throw new ConnectionLimitException(DisconnectReason.HEADER_TIMEOUT,
+                        "Request headers not received within " + limits.headerTimeoutMillis() + "ms");
+            }
+
             if (currentByte == '\r') {
                 crlfCount = (crlfCount == 0 || crlfCount == 2) ? crlfCount + 1 : 0;
             } else if (currentByte == '\n') {
@@ -103,18 +140,28 @@ public class HttpRequestParser {
         request.setMethod(method);
     }
 
-    private void parsePath(String path) throws HttpParsingException {
+    private void parsePath(String target) throws HttpParsingException {
         Pattern pathValidator = Pattern.compile("^(/[-a-zA-Z0-9._~%!$&'()*+,;=:@/]*)?$");
+        Pattern queryValidator = Pattern.compile("^[-a-zA-Z0-9._~%!$&'()*+,;=:@/?]*$");
 
-        if (path.trim().isEmpty()) {
+        if (target.trim().isEmpty()) {
             throw new HttpParsingException("Empty HTTP path");
         }
 
+        int queryStart = target.indexOf('?');
+        String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+        String query = queryStart >= 0 ? target.substring(queryStart + 1) : null;
+
         if (!pathValidator.matcher(path).matches()) {
             throw new HttpParsingException("Invalid HTTP path: " + path);
         }
 
+        if (query != null && !queryValidator.matcher(query).matches()) {
+            throw new HttpParsingException("Invalid HTTP query string: " + query);
+        }
+
         request.setPath(path);
+        request.setQuery(query);
     }
 
     private void parseVersion(String version) throws HttpParsingException {
@@ -133,9 +180,14 @@ public class HttpRequestParser {
 
     private void parseHeaders(BufferedReader reader) throws HttpParsingException, IOException {
         Map<String, String> headers = request.getHeaders();
+        int headerCount = 0;
         String line;
 
         while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            if (++headerCount > limits.maxHeaderCount()) {
+                throw new ConnectionLimitException(DisconnectReason.TOO_MANY_HEADERS,
+                        "Request exceeds " + limits.maxHeaderCount() + " headers");
+            }
 
             if (line.contains(":")) {
                 String[] pair = line.split(":", 2);
@@ -159,15 +211,34 @@ public class HttpRequestParser {
     }
 
     private void parseBody() throws HttpParsingException, IOException {
-        int maxContentLength = 10 * 1024 * 1024;
+        String transferEncoding = request.getHeader("Transfer-Encoding");
         String contentLengthHeader = request.getHeader("Content-Length");
+        boolean streaming = streamBody.test(request);
+
+        if (transferEncoding != null) {
+            if (!transferEncoding.trim().equalsIgnoreCase("chunked")) {
+                throw new HttpParsingException("Unsupported Transfer-Encoding: " + transferEncoding);
+            }
+
+            // Both framing headers together is a request smuggling vector, so reject outright
+            if (contentLengthHeader != null) {
+                throw new HttpParsingException("Both Transfer-Encoding and Content-Length provided");
+            }
+
+            long maxBodyBytes = streaming ? limits.maxStreamedBodyBytes() : limits.maxBodyBytes();
+            InputStream rawBody = new RequestBodyInputStream(inputStream, -1, limits, !streaming);
+            setBody(new ChunkedInputStream(rawBody, maxBodyBytes), streaming);
+            return;
+        }
 
         if (contentLengthHeader == null || contentLengthHeader.trim().isEmpty()) {
             return;
         }
 
+        long maxContentLength = streaming ? limits.maxStreamedBodyBytes() : limits.maxBodyBytes();
+
         try {
-            int contentLength = Integer.parseInt(contentLengthHeader);
+            long contentLength = Long.parseLong(contentLengthHeader.trim());
 
             if (contentLength == 0) {
                 return;
@@ -178,32 +249,36 @@ public class HttpRequestParser {
             }
 
             if (contentLength > maxContentLength) {
-                throw new HttpParsingException("Content-Length exceeds 10MB: " + contentLength);
+                throw new HttpParsingException("Content-Length exceeds " + maxContentLength + " bytes: " + contentLength);
             }
 
-            byte[] bodyBytes = parseBodyToByteArray(contentLength);
-            request.setBody(bodyBytes);
+            setBody(new RequestBodyInputStream(inputStream, contentLength, limits, !streaming), streaming);
         } catch (NumberFormatException e) {
             throw new HttpParsingException("Invalid Content-Length header: " + contentLengthHeader);
-        } catch (OutOfMemoryError e) {
-            throw new HttpParsingException("Unable to allocate memory for request body");
         }
     }
 
-    private byte[] parseBodyToByteArray(int contentLength) throws HttpParsingException, IOException {
-        byte[] bodyBytes = new byte[contentLength];
-        int totalBytesRead = 0;
-
-        while (totalBytesRead < contentLength) {
-            int bytesRead =  inputStream.read(bodyBytes, totalBytesRead, contentLength - totalBytesRead);
-
-            if (bytesRead == -1) {
-                throw new  HttpParsingException("Unexpected end of stream while reading request body");
-            }
+    // Buffered bodies grow as bytes arrive rather than pre-allocating the declared length
+    private void setBody(InputStream bodyStream, boolean streaming) throws HttpParsingException, IOException {
+        if (streaming) {
+            request.setBodyStream(bodyStream);
+            return;
+        }
 
-            totalBytesRead += bytesRead;
+        try {
+            request.setBody(bodyStream.readAllBytes());
+        } catch (EOFException e) {
+            throw new HttpParsingException("Unexpected end of stream while reading request body");
+        } catch (OutOfMemoryError e) {
+            throw new HttpParsingException("Unable to allocate memory for request body");
         }
+    }
 
-        return bodyBytes;
+    private int readByte() throws IOException, ConnectionLimitException {
+        try {
+            return inputStream.read();
+        } catch (SocketTimeoutException e) {
+            throw new ConnectionLimitException(DisconnectReason.IDLE_TIMEOUT, "Client idle while sending headers");
+        }
     }
 }
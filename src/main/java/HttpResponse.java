@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
 /**
  * HTTP response message containing status information, headers, and body.
  * Extends HttpMessage to inherit common header and body handling functionality.
@@ -7,14 +11,19 @@
  * - Store HTTP status line components (version, status code, reason phrase)
  * - Format status line for HTTP message transmission
  * - Provide convenient access to response-specific data
+ * - Optionally carry the body as BodySegments (e.g. file regions) instead of a byte array
+ * - Optionally carry a BodyWriter that streams a body of unknown length at write time
  *
  * @see HttpMessage
  * @see HttpResponseBuilder
+ * @see BodySegment
  */
 public class HttpResponse extends HttpMessage{
     private String version;
     private int statusCode;
     private String reasonPhrase;
+    private List<BodySegment> bodySegments;
+    private BodyWriter bodyWriter;
 
     public String getVersion() {
         return version != null ? version : "";
@@ -28,6 +37,38 @@ public class HttpResponse extends HttpMessage{
         return reasonPhrase != null ? reasonPhrase : "";
     }
 
+    public List<BodySegment> getBodySegments() {
+        return bodySegments != null ? bodySegments : List.of(BodySegment.ofBytes(getBodyBytes()));
+    }
+
+    public BodyWriter getBodyWriter() {
+        return bodyWriter;
+    }
+
+    public boolean hasStreamingBody() {
+        return bodyWriter != null;
+    }
+
+    /**
+     * @return the body length in bytes, or -1 for a streamed body whose length is not known up front
+     */
+    public long getContentLength() {
+        if (bodyWriter != null) {
+            return -1;
+        }
+
+        if (bodySegments == null) {
+            return getBodyBytes().length;
+        }
+
+        long contentLength = 0;
+        for (BodySegment segment : bodySegments) {
+            contentLength += segment.length();
+        }
+
+        return contentLength;
+    }
+
     public String getStartLine() {
         return version + " " +  statusCode + " " + reasonPhrase;
     }
@@ -43,4 +84,22 @@ public class HttpResponse extends HttpMessage{
     public void setReasonPhrase(String reasonPhrase) {
         this.reasonPhrase = reasonPhrase;
     }
+
+    public void setBodySegments(List<BodySegment> bodySegments) {
+        this.bodySegments = bodySegments;
+    }
+
+    public void setBodyWriter(BodyWriter bodyWriter) {
+        this.bodyWriter = bodyWriter;
+    }
+
+    /**
+     * Produces a response body directly onto the connection once the head has been sent.
+     * Used for bodies too large to hold in memory; ResponseWriter frames the output with
+     * chunked transfer-encoding.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
 }
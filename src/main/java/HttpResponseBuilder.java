@@ -1,3 +1,4 @@
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -8,7 +9,7 @@ import java.util.Map;
  * Responsibilities:
  * - Construct HttpResponse objects with builder interface
  * - Automatically map status codes to appropriate reason phrases
- * - Support both string and binary response bodies
+ * - Support string, binary, segmented (file region) and streamed response bodies
  * - Enable method chaining for readable response construction
  * <p>
  * Automatic reason phrase generation covers common HTTP status codes.
@@ -60,10 +61,24 @@ public class HttpResponseBuilder {
         return this;
     }
 
+    public HttpResponseBuilder bodySegments(List<BodySegment> bodySegments) {
+        response.setBodySegments(bodySegments);
+        return this;
+    }
+
+    public HttpResponseBuilder streamingBody(HttpResponse.BodyWriter bodyWriter) {
+        response.setBodyWriter(bodyWriter);
+        return this;
+    }
+
     public static String getReasonPhrase(int statusCode) {
         String reasonPhrase;
 
         switch (statusCode) {
+            case 200 -> reasonPhrase = "OK";
+            case 201 -> reasonPhrase = "Created";
+            case 206 -> reasonPhrase = "Partial Content";
+            case 304 -> reasonPhrase = "Not Modified";
             case 400 -> reasonPhrase = "Bad Request";
             case 401 -> reasonPhrase = "Unauthorized";
             case 403 -> reasonPhrase = "Forbidden";
@@ -71,7 +86,11 @@ public class HttpResponseBuilder {
             case 405 -> reasonPhrase = "Method Not Allowed";
             case 406 -> reasonPhrase = "Not Acceptable";
             case 409 -> reasonPhrase = "Conflict";
+            case 415 -> reasonPhrase = "Unsupported Media Type";
+            case 416 -> reasonPhrase = "Range Not Satisfiable";
+            case 429 -> reasonPhrase = "Too Many Requests";
             case 500 -> reasonPhrase = "Internal Server Error";
+            case 503 -> reasonPhrase = "Service Unavailable";
             default -> reasonPhrase = "Unknown";
         }
 
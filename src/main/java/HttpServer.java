@@ -1,56 +1,536 @@
 import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * HTTP server that accepts client connections and manages the complete
  * request-response lifecycle using virtual threads for lightweight concurrency.
  * <p>
  * Responsibilities:
- * - Accept incoming client connections on port 9000
+ * - Load configuration, build the frontend assets, map the breached password list and warm the
+ *   pool, JIT and caches before the listener opens; the availability and search indexes are
+ *   built in the background
+ * - Start the outbox relay, and drain it and the activity buffer on shutdown
+ * - Accept incoming client connections on the configured port (9000 by default), a Unix
+ *   domain socket for a co-located reverse proxy, or both, through the same pipeline
+ * - Run several TCP acceptor threads, each on its own SO_REUSEPORT socket where supported,
+ *   and report accept rates
+ * - Cap open connections, rejecting the excess with a fast 503 response
+ * - Enforce socket read/write timeouts and cut slow clients (see RequestReadLimits)
+ * - Shut down gracefully: stop accepting, drain in-flight requests, release resources
  * - Coordinate request parsing through HttpRequestParser
  * - Delegate response generation to HttpRequestHandler
+ * - Write responses through ResponseWriter using gathering channel writes
  * - Handle I/O operations and resource management
  * - Centralize error logging for the entire request pipeline
+ * - Emit flight recorder events for accept, parse and response write, and report
+ *   virtual-thread pinning in JDBC calls through VirtualThreadPinningMonitor
  *
  * @see HttpRequestParser
  * @see HttpRequestHandler
+ * @see AdmissionController
+ * @see RequestReadLimits
+ * @see ServerConfig
+ * @see ServerWarmup
+ * @see ResponseWriter
+ * @see ClientConnection
+ * @see AcceptRateMeter
+ * @see FlightEvents
+ * @see VirtualThreadPinningMonitor
  */
 public class HttpServer {
+    private static final ScheduledExecutorService writeWatchdog = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().daemon().name("write-watchdog").unstarted(runnable));
+    private static final int FILE_TYPE_MASK = 0170000;
+    private static final int SOCKET_FILE_TYPE = 0140000;
+    private static volatile boolean shuttingDown;
+
+    // Assigned once in main from ServerConfig, before the listener accepts any connection
+    private static ServerConfig config;
+    private static Semaphore openConnections;
+    private static AdmissionController admissionController;
+    private static HttpRequestHandler requestHandler;
+    private static RequestReadLimits readLimits;
+    private static AcceptRateMeter acceptRate;
 
     public static void main(String[] args) {
-        try (ExecutorService threadPool = Executors.newVirtualThreadPerTaskExecutor()) {
+        long startNanos = System.nanoTime();
+        configure(ServerConfig.get());
+        long configuredNanos = System.nanoTime();
+
+        int warmConnections = warmUpDatabase();
+        OutboxRelay.start();
+        VirtualThreadPinningMonitor.start(config.diagnostics());
+        AvailabilityIndex.rebuildAsync();
+        UserSearchIndex.buildAsync();
+        long databaseNanos = System.nanoTime();
+
+        BreachedPasswordIndex.open(config.breachedPasswordFile());
+        AssetPipeline.build(config.assets());
+        ServerWarmup.run(config.warmupIterations());
+        long warmupNanos = System.nanoTime();
+
+        ExecutorService threadPool = Executors.newVirtualThreadPerTaskExecutor();
+
+        try {
+            List<Acceptor> acceptors = openAcceptors(config.listeners());
+            reportStartup(startNanos, configuredNanos, databaseNanos, warmupNanos, warmConnections, acceptors);
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(() -> shutdown(acceptors, threadPool), "shutdown"));
+
+            // Every acceptor but the first gets its own platform thread; the main thread runs the first
+            for (Acceptor acceptor : acceptors.subList(1, acceptors.size())) {
+                Thread.ofPlatform().name("acceptor-" + acceptor.name()).start(() -> {
+                    try {
+                        acceptConnections(acceptor, threadPool);
+                    } catch (IOException e) {
+                        System.err.println("Server Exception: " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                });
+            }
+
+            acceptConnections(acceptors.get(0), threadPool);
+        } catch (IOException e) {
+            System.err.println("Server Exception: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Opens the TCP acceptors and the Unix domain socket acceptor, if configured. Where the
+     * platform supports SO_REUSEPORT each TCP acceptor binds its own socket and the kernel
+     * spreads incoming connections across them; otherwise they take turns on a shared one.
+     */
+    private static List<Acceptor> openAcceptors(ServerConfig.ListenerSettings settings) throws IOException {
+        List<Acceptor> acceptors = new ArrayList<>();
+        acceptRate = new AcceptRateMeter();
+
+        if (settings.tcpEnabled()) {
+            boolean reusePort = settings.acceptorThreads() > 1 && supportsReusePort();
+            ServerSocketChannel sharedListener = reusePort ? null : openTcpListener(settings, false);
+
+            for (int i = 0; i < settings.acceptorThreads(); i++) {
+                ServerSocketChannel listener = reusePort ? openTcpListener(settings, true) : sharedListener;
+                acceptors.add(new Acceptor("tcp-" + i, listener, false, reusePort, new AcceptRateMeter()));
+            }
+        }
+
+        if (!settings.unixSocketPath().isEmpty()) {
+            Path socketPath = Path.of(settings.unixSocketPath());
+            removeStaleSocket(socketPath);
+            ServerSocketChannel unixChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            unixChannel.bind(UnixDomainSocketAddress.of(socketPath), settings.backlog());
+            acceptors.add(new Acceptor("unix", unixChannel, true, false, new AcceptRateMeter()));
+        }
+
+        return acceptors;
+    }
+
+    /**
+     * Removes a socket file left by an unclean exit, which would otherwise fail the bind.
+     * Anything else at the path, or a socket another process is still listening on, fails
+     * startup instead of being deleted.
+     */
+    private static void removeStaleSocket(Path socketPath) throws IOException {
+        if (!Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+
+        int mode = (Integer) Files.getAttribute(socketPath, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+        if ((mode & FILE_TYPE_MASK) != SOCKET_FILE_TYPE) {
+            throw new IllegalStateException("UNIX_SOCKET_PATH " + socketPath + " exists and is not a socket");
+        }
+
+        try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            probe.connect(UnixDomainSocketAddress.of(socketPath));
+            throw new IllegalStateException("UNIX_SOCKET_PATH " + socketPath + " is in use by another server");
+        } catch (IOException e) {
+            // Nothing is listening, so the socket is stale
+            Files.delete(socketPath);
+        }
+    }
+
+    private static boolean supportsReusePort() throws IOException {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        }
+    }
+
+    // The receive buffer is set before bind so accepted sockets inherit it, and window scaling covers it
+    private static ServerSocketChannel openTcpListener(ServerConfig.ListenerSettings settings, boolean reusePort)
+            throws IOException {
+        ServerSocketChannel listener = ServerSocketChannel.open();
+
+        if (reusePort) {
+            listener.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        if (settings.receiveBufferBytes() > 0) {
+            listener.setOption(StandardSocketOptions.SO_RCVBUF, settings.receiveBufferBytes());
+        }
+
+        listener.bind(new InetSocketAddress(config.port()), settings.backlog());
+        return listener;
+    }
+
+    // Accepted through channels so responses can use gathering writes
+    private static void acceptConnections(Acceptor acceptor, ExecutorService threadPool) throws IOException {
+        ServerConfig.ListenerSettings settings = config.listeners();
 
-            try (ServerSocket serverSocket = new ServerSocket(9000)) {
-                while (true) {
-                    Socket clientSocket = serverSocket.accept();
-                    threadPool.submit(() -> handleRequest(clientSocket));
+        while (!shuttingDown) {
+            SocketChannel channel;
+
+            try {
+                channel = acceptor.listener().accept();
+            } catch (IOException e) {
+                if (shuttingDown) {
+                    break; // Server socket closed by the shutdown hook
                 }
+                throw e;
+            }
+
+            acceptor.meter().record();
+            acceptRate.record();
+
+            if (acceptor.unixDomain()) {
+                dispatchConnection(threadPool, ClientConnection.unixDomain(channel, writeWatchdog));
+                continue;
+            }
+
+            try {
+                applySocketOptions(channel, settings);
+            } catch (IOException e) {
+                // Typically reset by the client already; it must not stop this acceptor
+                channel.close();
+                continue;
+            }
+
+            dispatchConnection(threadPool, ClientConnection.tcp(channel));
+        }
+    }
+
+    private static void applySocketOptions(SocketChannel channel, ServerConfig.ListenerSettings settings)
+            throws IOException {
+        if (settings.tcpNoDelay()) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        if (settings.sendBufferBytes() > 0) {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, settings.sendBufferBytes());
+        }
+    }
+
+    private static String describe(List<Acceptor> acceptors) {
+        List<String> parts = new ArrayList<>();
+        long tcpAcceptors = acceptors.stream().filter(acceptor -> !acceptor.unixDomain()).count();
+
+        if (tcpAcceptors == 1) {
+            parts.add("port " + config.port());
+        } else if (tcpAcceptors > 1) {
+            boolean reusePort = acceptors.get(0).reusePort();
+            parts.add("port " + config.port() + " with " + tcpAcceptors + " acceptors "
+                    + (reusePort ? "(SO_REUSEPORT)" : "sharing one socket"));
+        }
+
+        if (!config.listeners().unixSocketPath().isEmpty()) {
+            parts.add("unix socket " + config.listeners().unixSocketPath());
+        }
+
+        return String.join(" and ", parts);
+    }
+
+    private static void configure(ServerConfig serverConfig) {
+        ServerConfig.AdmissionSettings admission = serverConfig.admission();
+
+        config = serverConfig;
+        readLimits = serverConfig.readLimits();
+        openConnections = new Semaphore(serverConfig.maxOpenConnections());
+        admissionController = new AdmissionController(admission.initialLimit(), admission.minLimit(),
+                admission.maxLimit(), admission.targetLatencyMillis(), admission.retryAfterSeconds());
+        requestHandler = new HttpRequestHandler(admissionController);
+    }
+
+    private static int warmUpDatabase() {
+        try {
+            return DBConnectionManager.warmUp();
+        } catch (SQLException e) {
+            // Static pages can still be served; the pool will retry on the first database request
+            System.err.println("Database warm-up failed: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static void reportStartup(long startNanos, long configuredNanos, long databaseNanos,
+                                      long warmupNanos, int warmConnections, List<Acceptor> acceptors) {
+        long listeningNanos = System.nanoTime();
+
+        System.out.printf("Configuration loaded in %d ms%n", toMillis(configuredNanos - startNanos));
+        System.out.printf("Database pool warmed in %d ms (%d connections)%n",
+                toMillis(databaseNanos - configuredNanos), warmConnections);
+        System.out.printf("Request pipeline warmed in %d ms (%d iterations)%n",
+                toMillis(warmupNanos - databaseNanos), config.warmupIterations());
+        System.out.printf("Listening on %s after %d ms (JVM uptime %d ms)%n", describe(acceptors),
+                toMillis(listeningNanos - startNanos), ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static void dispatchConnection(ExecutorService threadPool, ClientConnection connection) {
+        FlightEvents.ConnectionAccept accepted = new FlightEvents.ConnectionAccept();
+        accepted.begin();
+        boolean admitted = openConnections.tryAcquire();
+        accepted.admitted = admitted;
+
+        try {
+            if (admitted) {
+                threadPool.submit(() -> handleRequest(connection, accepted));
+            } else {
+                threadPool.submit(() -> rejectRequest(connection, accepted));
+            }
+        } catch (RejectedExecutionException e) {
+            // Accepted just as shutdown began; the client will retry against another instance
+            if (admitted) {
+                openConnections.release();
+            }
+            connection.closeQuietly();
+        }
+    }
+
+    /**
+     * Stops accepting connections, lets in-flight requests finish within the drain deadline,
+     * then releases shared resources. Runs on the JVM shutdown hook (SIGTERM, Ctrl+C).
+     */
+    private static void shutdown(List<Acceptor> acceptors, ExecutorService threadPool) {
+        shuttingDown = true;
+        System.out.println("Shutting down: no longer accepting connections");
+
+        for (Acceptor acceptor : acceptors) {
+            try {
+                acceptor.listener().close(); // Idempotent, so a socket shared by several acceptors is fine
             } catch (IOException e) {
-                System.err.println("Server Exception: " + e.getMessage());
-                e.printStackTrace();
+                System.err.println("Shutdown Exception: " + e.getMessage());
+            }
+        }
+
+        deleteUnixSocketFile(); // Closing the channel leaves the file behind
+
+        ServerEvents.shutdown(); // Event streams would otherwise hold their connections until the drain deadline
+        threadPool.shutdown();
+
+        try {
+            if (!threadPool.awaitTermination(config.shutdownDrainSeconds(), TimeUnit.SECONDS)) {
+                System.err.println("Drain deadline exceeded, interrupting "
+                        + (config.maxOpenConnections() - openConnections.availablePermits()) + " open connections");
+                threadPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            threadPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        OutboxRelay.shutdown();
+        ActivityTracker.shutdown(); // Drains buffered login activity while the pools are still open
+        DBConnectionManager.shutdown();
+        VirtualThreadPinningMonitor.shutdown();
+        writeWatchdog.shutdownNow();
+        logServerStatistics(acceptors);
+        System.out.println("Shutdown complete");
+    }
+
+    private static void deleteUnixSocketFile() {
+        String socketPath = config.listeners().unixSocketPath();
+
+        if (!socketPath.isEmpty()) {
+            try {
+                Files.deleteIfExists(Path.of(socketPath));
+            } catch (IOException e) {
+                System.err.println("Shutdown Exception: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void logServerStatistics(List<Acceptor> acceptors) {
+        for (RequestPriority priority : RequestPriority.values()) {
+            System.out.println("Requests " + priority + ": admitted=" + admissionController.getAdmittedCount(priority)
+                    + " shed=" + admissionController.getShedCount(priority));
+        }
+
+        System.out.println("Availability checks: answered in memory=" + AvailabilityIndex.getAnsweredInMemoryCount()
+                + " sent to database=" + AvailabilityIndex.getPossibleHitCount());
+
+        for (UserLookupBatcher<?> batcher : UserDAO.getLookupBatchers()) {
+            System.out.printf("User lookups %s: lookups=%d batches=%d avg batch=%.1f max batch=%d coalesced=%d%n",
+                    batcher.getName(), batcher.getLookupCount(), batcher.getBatchCount(),
+                    batcher.getAverageBatchSize(), batcher.getLargestBatchSize(), batcher.getCoalescedCount());
+        }
+
+        if (DBConnectionManager.getReplicaCount() > 0) {
+            System.out.println("Replica reads: " + DBConnectionManager.getReplicaReadCount()
+                    + " fell back to primary=" + DBConnectionManager.getPrimaryFallbackCount());
+        }
+
+        System.out.println("Outbox events relayed: " + OutboxRelay.getRelayedCount()
+                + " failed batches=" + OutboxRelay.getFailedBatchCount());
+
+        System.out.println("Login activity: recorded=" + ActivityTracker.getRecordedLoginCount()
+                + " users flushed=" + ActivityTracker.getFlushedUserCount()
+                + " failed flushes=" + ActivityTracker.getFailedFlushCount()
+                + " unsaved=" + ActivityTracker.getPendingUserCount());
+
+        System.out.println("Virtual thread pinning: total=" + VirtualThreadPinningMonitor.getPinnedCount()
+                + " in JDBC calls=" + VirtualThreadPinningMonitor.getJdbcPinnedCount());
+
+        System.out.println("Breached password checks: " + BreachedPasswordIndex.getCheckedCount()
+                + " rejected=" + BreachedPasswordIndex.getBreachedCount());
+
+        System.out.println("Sessions: active=" + SessionManager.getActiveSessionCount()
+                + " evicted=" + SessionManager.getEvictedSessionCount());
+
+        System.out.println("Event streams: open=" + ServerEvents.getSubscriberCount()
+                + " coalesced=" + ServerEvents.getCoalescedCount() + " dropped=" + ServerEvents.getDroppedCount());
+
+        System.out.printf("Connections accepted: %d (peak %d/s, average %.1f/s)%n", acceptRate.getAcceptedCount(),
+                acceptRate.getPeakPerSecond(), acceptRate.getAveragePerSecond());
+
+        if (acceptors.size() > 1) {
+            for (Acceptor acceptor : acceptors) {
+                System.out.println("Acceptor " + acceptor.name() + ": accepted=" + acceptor.meter().getAcceptedCount()
+                        + " peak=" + acceptor.meter().getPeakPerSecond() + "/s");
             }
         }
+
+        for (DisconnectReason reason : DisconnectReason.values()) {
+            System.out.println("Connections cut " + reason + ": " + reason.getCount());
+        }
     }
 
-    private static void handleRequest(Socket clientSocket) {
-        try (clientSocket;
-             InputStream inputStream = clientSocket.getInputStream();
-             OutputStream outputStream = clientSocket.getOutputStream()) {
+    private static void handleRequest(ClientConnection connection, FlightEvents.ConnectionAccept accepted) {
+        commitConnectionAccept(accepted, connection);
 
-            HttpRequest request = new HttpRequestParser(inputStream).parseToHttpRequest();
-            HttpResponse response = new HttpRequestHandler(request).getResponse();
+        try (connection;
+             InputStream inputStream = new BufferedInputStream(connection.getInputStream());
+             OutputStream outputStream = connection.getOutputStream()) {
 
-            outputStream.write(response.getBytes());
-            outputStream.flush();
+            connection.setReadTimeout(readLimits.idleTimeoutMillis());
+            FlightEvents.RequestParse parse = new FlightEvents.RequestParse();
+            parse.begin();
+            HttpRequest request = new HttpRequestParser(inputStream, readLimits,
+                    HttpRequestHandler::isStreamingBodyRequest).parseToHttpRequest();
+            if (parse.shouldCommit()) {
+                parse.method = request.getMethod();
+                parse.path = request.getPath();
+                parse.commit();
+            }
+            request.setRemoteAddress(connection.getClientAddress(request, config.listeners().forwardedForHeader()));
+            HttpResponse response = requestHandler.getResponse(request);
+
+            writeResponse(connection, outputStream, response);
+        } catch (BodyLimitException e) {
+            System.err.println("Connection cut (" + e.getReason() + "): " + e.getMessage());
         } catch (IOException e) {
             System.err.println("Server Exception: " + e.getMessage());
             e.printStackTrace();
+        } catch (ConnectionLimitException e) {
+            System.err.println("Connection cut (" + e.getReason() + "): " + e.getMessage());
         } catch (HttpParsingException e) {
             System.err.println("Parsing Exception: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            openConnections.release();
         }
     }
-}
\ No newline at end of file
+
+    // Rejected before parsing so overload costs a single small write rather than a full request cycle
+    private static void rejectRequest(ClientConnection connection, FlightEvents.ConnectionAccept accepted) {
+        commitConnectionAccept(accepted, connection);
+        HttpResponse response = HttpRequestHandler.getServiceUnavailableResponse(
+                admissionController.getRetryAfterSeconds());
+        HttpRequestHandler.finalizeResponseHeaders(response);
+
+        try (connection; OutputStream outputStream = connection.getOutputStream()) {
+            writeResponse(connection, outputStream, response);
+        } catch (IOException e) {
+            System.err.println("Server Exception: " + e.getMessage());
+        }
+    }
+
+    // Measures accept-to-handler latency, which grows when carrier threads are busy or pinned
+    private static void commitConnectionAccept(FlightEvents.ConnectionAccept accepted, ClientConnection connection) {
+        if (accepted.shouldCommit()) {
+            accepted.remoteAddress = connection.getRemoteAddress();
+            accepted.commit();
+        }
+    }
+
+    private static void writeResponse(ClientConnection connection, OutputStream outputStream, HttpResponse response)
+            throws IOException {
+        FlightEvents.ResponseWrite event = new FlightEvents.ResponseWrite();
+        event.begin();
+
+        try {
+            writeWithStallCheck(connection, outputStream, response);
+        } finally {
+            if (event.shouldCommit()) {
+                event.statusCode = response.getStatusCode();
+                event.streaming = response.hasStreamingBody();
+                event.bodyBytes = event.streaming ? -1 : response.getContentLength();
+                event.commit();
+            }
+        }
+    }
+
+    // Blocking socket writes have no timeout of their own, so a watchdog closes the socket once no
+    // chunk has gone out for a full write timeout. Progress rather than total time is checked so a
+    // large file to a slow but steady client is never cut off, while a stalled one is
+    private static void writeWithStallCheck(ClientConnection connection, OutputStream outputStream,
+                                            HttpResponse response) throws IOException {
+        long stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readLimits.writeTimeoutMillis());
+        long checkIntervalMillis = Math.max(1, readLimits.writeTimeoutMillis() / 4);
+        AtomicLong lastProgressNanos = new AtomicLong(System.nanoTime());
+        Runnable onChunkWritten = () -> lastProgressNanos.set(System.nanoTime());
+
+        ScheduledFuture<?> stallCheck = writeWatchdog.scheduleAtFixedRate(() -> {
+            if (!connection.isClosed() && System.nanoTime() - lastProgressNanos.get() > stallTimeoutNanos) {
+                DisconnectReason.WRITE_TIMEOUT.record();
+                connection.closeQuietly();
+            }
+        }, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            SocketChannel channel = connection.getChannel();
+
+            if (channel != null) {
+                ResponseWriter.write(response, channel, onChunkWritten);
+            } else {
+                ResponseWriter.write(response, outputStream, onChunkWritten);
+            }
+        } finally {
+            stallCheck.cancel(false);
+        }
+    }
+
+    // With SO_REUSEPORT every TCP acceptor owns its listener; otherwise they share one
+    private record Acceptor(String name, ServerSocketChannel listener, boolean unixDomain, boolean reusePort,
+                            AcceptRateMeter meter) {
+    }
+}
@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventSink that keeps events in a bounded in-memory queue, for tests and local debugging.
+ * A batch that does not fit is refused whole, so it stays in the outbox until there is room.
+ *
+ * @see EventSink
+ * @see OutboxRelay
+ */
+public class InMemoryEventSink implements EventSink {
+    private final BlockingQueue<OutboxEvent> events;
+
+    public InMemoryEventSink(int capacity) {
+        this.events = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> batch) throws IOException {
+        if (events.remainingCapacity() < batch.size()) {
+            throw new IOException("In-memory event sink is full");
+        }
+
+        events.addAll(batch);
+    }
+
+    /**
+     * @return the next event, or null if none arrives within the timeout
+     */
+    public OutboxEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return events.poll(timeout, unit);
+    }
+
+    public int drainTo(Collection<? super OutboxEvent> target) {
+        return events.drainTo(target);
+    }
+
+    @Override
+    public String toString() {
+        return "memory";
+    }
+}
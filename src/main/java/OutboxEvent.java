@@ -0,0 +1,38 @@
+import java.time.Instant;
+
+/**
+ * A user lifecycle event read back from the user_events outbox table by OutboxRelay.
+ * <p>
+ * Events are appended by UserDAO in the same statement as the write they describe, so an
+ * event exists exactly when its change committed. Delivery is at-least-once: consumers should
+ * use the id to discard an event they have already seen.
+ * <p>
+ * Ids come from a sequence drawn when the row is inserted, not when it commits, so a
+ * transaction holding a lower id can commit after one holding a higher id, and the relay may
+ * deliver them in that order. Consumers must therefore deduplicate against the set of ids
+ * they have processed, never against the highest id seen so far, which would drop the
+ * late-committing event.
+ *
+ * @param id unique outbox id; not ordered by commit time
+ * @param type one of the USER_* constants
+ * @param payload JSON object with the user's id, username and email after the change
+ * @see OutboxRelay
+ * @see EventSink
+ */
+public record OutboxEvent(long id, String type, int userId, String payload, Instant createdAt) {
+    public static final String USER_REGISTERED = "user.registered";
+    public static final String USERNAME_CHANGED = "user.username_changed";
+    public static final String EMAIL_CHANGED = "user.email_changed";
+    public static final String PASSWORD_CHANGED = "user.password_changed";
+
+    /**
+     * @return the event as one line of JSON, including the trailing newline
+     */
+    public String toJsonLine() {
+        return "{\"id\":" + id
+                + ",\"type\":\"" + JsonUtil.escapeJson(type) + "\""
+                + ",\"userId\":" + userId
+                + ",\"createdAt\":\"" + createdAt + "\""
+                + ",\"data\":" + payload + "}\n";
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background relay that publishes user lifecycle events from the user_events outbox table
+ * to the configured EventSinks, so registration and profile changes notify other systems
+ * without adding synchronous side effects to the request.
+ * <p>
+ * Responsibilities:
+ * - Create the sinks named in ServerConfig at startup, failing fast on an unknown spec
+ * - Poll the outbox from a single background thread, draining backlogs batch by batch
+ * - Publish each batch to every sink, deleting it from the outbox only once all succeeded
+ * - Leave failed batches in the outbox to be retried on the next poll
+ * - Relay what is left and close the sinks on shutdown, before the connection pools close
+ * <p>
+ * Delivery is at-least-once: a failure in one sink, or a crash between publishing and the
+ * delete committing, redelivers the batch to every sink. Each batch is read with
+ * FOR UPDATE SKIP LOCKED, so several server instances can relay from one outbox safely.
+ *
+ * @see OutboxEvent
+ * @see EventSink
+ * @see UserDAO
+ * @see ServerConfig
+ */
+public class OutboxRelay {
+    private static final ServerConfig.OutboxSettings settings = ServerConfig.get().outbox();
+    private static final int SHUTDOWN_WAIT_SECONDS = 5;
+    private static final int IN_MEMORY_SINK_CAPACITY = 10_000;
+
+    private static final UserDAO userDAO = new UserDAO();
+    private static final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().daemon().name("outbox-relay").unstarted(runnable));
+    private static final LongAdder relayedEvents = new LongAdder();
+    private static final LongAdder failedBatches = new LongAdder();
+    private static volatile List<EventSink> sinks = List.of();
+
+    /**
+     * Creates the configured sinks and starts polling. With no sinks configured the relay
+     * stays idle and events accumulate in the outbox until one is.
+     */
+    public static void start() {
+        sinks = createSinks(settings.sinks());
+
+        if (sinks.isEmpty()) {
+            System.out.println("Outbox relay disabled: no event sinks configured");
+            return;
+        }
+
+        relay.scheduleWithFixedDelay(OutboxRelay::relayPendingEvents,
+                0, settings.pollIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Called during server shutdown, after in-flight requests have drained
+    public static void shutdown() {
+        relay.shutdown();
+
+        try {
+            if (!relay.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Outbox relay still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!sinks.isEmpty()) {
+            relayPendingEvents();
+        }
+
+        for (EventSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close event sink " + sink + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static List<EventSink> getSinks() {
+        return sinks;
+    }
+
+    public static long getRelayedCount() {
+        return relayedEvents.sum();
+    }
+
+    public static long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    // A full batch suggests a backlog, so keep going until a partial one drains it
+    private static void relayPendingEvents() {
+        try {
+            int relayed;
+
+            do {
+                relayed = userDAO.relayOutboxEvents(settings.batchSize(), OutboxRelay::publish);
+                relayedEvents.add(relayed);
+            } while (relayed > 0 && relayed == settings.batchSize());
+        } catch (SQLException | IOException | RuntimeException e) {
+            // Caught broadly: an exception escaping a scheduled task would silently stop the relay
+            failedBatches.increment();
+            System.err.println("Outbox relay failed, retrying next poll: " + e.getMessage());
+        }
+    }
+
+    private static void publish(List<OutboxEvent> events) throws IOException {
+        for (EventSink sink : sinks) {
+            sink.publish(events);
+        }
+    }
+
+    private static List<EventSink> createSinks(String specs) {
+        List<EventSink> created = new ArrayList<>();
+
+        for (String spec : specs.split(",")) {
+            spec = spec.trim();
+
+            if (spec.isEmpty()) {
+                continue;
+            }
+
+            if (spec.startsWith("file:")) {
+                created.add(new FileEventSink(Path.of(spec.substring("file:".length()))));
+            } else if (spec.startsWith("socket:")) {
+                created.add(new SocketEventSink(Path.of(spec.substring("socket:".length()))));
+            } else if (spec.equals("memory")) {
+                created.add(new InMemoryEventSink(IN_MEMORY_SINK_CAPACITY));
+            } else {
+                throw new IllegalStateException("Unknown event sink in OUTBOX_SINKS: " + spec);
+            }
+        }
+
+        return List.copyOf(created);
+    }
+}
@@ -8,9 +8,11 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
  * - Hash plaintext passwords using BCrypt algorithm
  * - Verify plaintext passwords against stored hashes
  * - Provide consistent password security across the application
+ * - Time each verification as a PasswordVerify flight recorder event
  *
  * @see User
  * @see UserService
+ * @see FlightEvents
  */
 public class PasswordUtil {
     private static final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
@@ -20,6 +22,15 @@ public class PasswordUtil {
     }
 
     public static boolean verifyPassword(String ptPassword, String hashedPassword) {
-        return encoder.matches(ptPassword, hashedPassword);
+        FlightEvents.PasswordVerify event = new FlightEvents.PasswordVerify();
+        event.begin();
+        boolean matched = encoder.matches(ptPassword, hashedPassword);
+
+        if (event.shouldCommit()) {
+            event.matched = matched;
+            event.commit();
+        }
+
+        return matched;
     }
 }
@@ -0,0 +1,107 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token-bucket rate limiter keyed by arbitrary strings (client IP, username).
+ * Used to stop password-hashing endpoints from being driven at unbounded rates.
+ * <p>
+ * Each bucket is a single AtomicLong holding the bucket's "theoretical arrival time"
+ * (the GCRA form of a token bucket), so acquiring is one lock-free CAS with no per-bucket
+ * lock. Buckets live in a ConcurrentHashMap, which stripes contention across bins.
+ * <p>
+ * Responsibilities:
+ * - Allow up to burstCapacity requests at once, refilling at refillPerMinute
+ * - Report how long a rejected caller should wait before retrying
+ * - Bound memory by evicting idle (fully refilled) buckets once maxKeys is exceeded
+ * <p>
+ * When the key table is full of active buckets, new keys are rejected until a sweep frees
+ * room, so a flood of distinct keys cannot push requests past the limiter untracked. Keys
+ * that already have a bucket are unaffected.
+ *
+ * @see UserRequestHandler
+ */
+public class RateLimiter {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger evictionGuard = new AtomicInteger();
+
+    public RateLimiter(int burstCapacity, int refillPerMinute, int maxKeys) {
+        this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * burstCapacity;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes one token from the bucket for the given key.
+     *
+     * @return 0 if the request is allowed, otherwise the number of seconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        AtomicLong bucket = getBucket(key);
+
+        if (bucket == null) {
+            // Fail closed, asking the caller to retry after one emission interval
+            return toRetrySeconds(emissionIntervalNanos);
+        }
+
+        while (true) {
+            long now = System.nanoTime();
+            long theoreticalArrival = bucket.get();
+            long newArrival = Math.max(theoreticalArrival, now) + emissionIntervalNanos;
+            long waitNanos = newArrival - now - burstToleranceNanos;
+
+            if (waitNanos > 0) {
+                return toRetrySeconds(waitNanos);
+            }
+
+            if (bucket.compareAndSet(theoreticalArrival, newArrival)) {
+                return 0;
+            }
+        }
+    }
+
+    public int getTrackedKeyCount() {
+        return buckets.size();
+    }
+
+    private AtomicLong getBucket(String key) {
+        AtomicLong bucket = buckets.get(key);
+
+        if (bucket != null) {
+            return bucket;
+        }
+
+        if (buckets.size() >= maxKeys) {
+            evictIdleBuckets();
+
+            if (buckets.size() >= maxKeys) {
+                return null;
+            }
+        }
+
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+    }
+
+    private static long toRetrySeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private void evictIdleBuckets() {
+        // Only one thread sweeps at a time; others proceed with the table as it is
+        if (!evictionGuard.compareAndSet(0, 1)) {
+            return;
+        }
+
+        try {
+            long now = System.nanoTime();
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+        } finally {
+            evictionGuard.set(0);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a request body from the client connection while enforcing RequestReadLimits.
+ * Handed to handlers directly for streaming bodies, or drained by HttpRequestParser
+ * for regular buffered bodies.
+ * <p>
+ * Responsibilities:
+ * - Stop at the declared Content-Length (or read until the decoder stops, for chunked bodies)
+ * - Enforce the body deadline (buffered bodies only) and the minimum transfer rate
+ * - Convert socket idle timeouts into BodyLimitException
+ * - Fail on premature end of stream instead of returning a truncated body
+ * <p>
+ * Streaming bodies are not given an absolute deadline because large uploads legitimately
+ * take longer; the minimum transfer rate and idle timeout still cut stalled clients.
+ * The transfer rate is measured over time spent waiting on the client, so a handler that
+ * pauses between reads to process what it has (e.g. UserImporter) is not mistaken for a
+ * slow sender.
+ *
+ * @see HttpRequestParser
+ * @see ChunkedInputStream
+ * @see BodyLimitException
+ */
+public class RequestBodyInputStream extends InputStream {
+    private final InputStream source;
+    private final RequestReadLimits limits;
+    private final boolean enforceDeadline;
+    private final long startNanos = System.nanoTime();
+    private long remaining;
+    private long totalBytesRead;
+    private long readNanos;
+
+    /**
+     * @param contentLength declared body length, or -1 when the length is delimited by chunked encoding
+     */
+    public RequestBodyInputStream(InputStream source, long contentLength, RequestReadLimits limits,
+                                  boolean enforceDeadline) {
+        this.source = source;
+        this.remaining = contentLength < 0 ? Long.MAX_VALUE : contentLength;
+        this.limits = limits;
+        this.enforceDeadline = enforceDeadline;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+
+        checkTransfer();
+        int bytesRead;
+        long readStartNanos = System.nanoTime();
+
+        try {
+            bytesRead = source.read(buffer, offset, (int) Math.min(length, remaining));
+        } catch (SocketTimeoutException e) {
+            throw new BodyLimitException(DisconnectReason.IDLE_TIMEOUT, "Client idle while sending body");
+        } finally {
+            readNanos += System.nanoTime() - readStartNanos;
+        }
+
+        if (bytesRead == -1) {
+            if (remaining != Long.MAX_VALUE) {
+                throw new EOFException("Unexpected end of stream while reading request body");
+            }
+            return -1;
+        }
+
+        if (remaining != Long.MAX_VALUE) {
+            remaining -= bytesRead;
+        }
+        totalBytesRead += bytesRead;
+
+        return bytesRead;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(source.available(), remaining);
+    }
+
+    // The client connection is owned by HttpServer, so closing the body must not close it
+    @Override
+    public void close() {
+    }
+
+    private void checkTransfer() throws BodyLimitException {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        if (enforceDeadline && elapsedMillis > limits.bodyTimeoutMillis()) {
+            throw new BodyLimitException(DisconnectReason.BODY_TIMEOUT,
+                    "Request body not received within " + limits.bodyTimeoutMillis() + "ms");
+        }
+
+        long readMillis = TimeUnit.NANOSECONDS.toMillis(readNanos);
+
+        if (readMillis > limits.minRateGraceMillis()
+                && totalBytesRead * 1000 / readMillis < limits.minBodyBytesPerSecond()) {
+            throw new BodyLimitException(DisconnectReason.TRANSFER_RATE_TOO_LOW,
+                    "Request body transfer rate below " + limits.minBodyBytesPerSecond() + " bytes/s");
+        }
+    }
+}
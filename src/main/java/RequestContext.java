@@ -0,0 +1,133 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-request state shared by the filter chain and the handlers, so cross-cutting work such
+ * as cookie parsing, session lookup and routing happens at most once per request however
+ * many layers ask for it.
+ * <p>
+ * Responsibilities:
+ * - Parse the Cookie header on first use
+ * - Resolve the session from the sessionId cookie on first use, remembering a miss as well
+ * - Route user requests through UserRouter on first use
+ * - Time the request from the moment its context was created
+ * - Carry named attributes from filters to later filters and handlers
+ * <p>
+ * A context is confined to the thread handling its request and is not thread-safe.
+ *
+ * @see HttpFilter
+ * @see FilterChain
+ * @see HttpRequestHandler
+ * @see SessionManager
+ */
+public class RequestContext {
+    private static final String SESSION_COOKIE = "sessionId";
+    private static final UserRouter userRouter = new UserRouter();
+
+    private final HttpRequest request;
+    private final long startNanos = System.nanoTime();
+    private Map<String, String> cookies;
+    private boolean sessionResolved;
+    private SessionData activeSession;
+    private UserRoute userRoute;
+    private Map<String, Object> attributes;
+
+    public RequestContext(HttpRequest request) {
+        this.request = request;
+    }
+
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    public boolean isUserRequest() {
+        return isUserRequest(request);
+    }
+
+    /**
+     * @return the matched route for user requests, or null for static file requests
+     */
+    public UserRoute getUserRoute() {
+        if (userRoute == null && isUserRequest()) {
+            userRoute = routeOf(request);
+        }
+
+        return userRoute;
+    }
+
+    public String getCookie(String name) {
+        if (cookies == null) {
+            cookies = parseCookies(request.getHeader("Cookie"));
+        }
+
+        return cookies.get(name);
+    }
+
+    public String getSessionId() {
+        return getCookie(SESSION_COOKIE);
+    }
+
+    /**
+     * @return the session named by the sessionId cookie, or null if it is missing or expired
+     */
+    public SessionData getActiveSession() {
+        if (!sessionResolved) {
+            activeSession = SessionManager.getActiveSession(getSessionId());
+            sessionResolved = true;
+        }
+
+        return activeSession;
+    }
+
+    public boolean hasActiveSession() {
+        return getActiveSession() != null;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+
+        attributes.put(name, value);
+    }
+
+    public static boolean isUserRequest(HttpRequest request) {
+        return request.getPath().contains("/users");
+    }
+
+    // For callers that need the route before a context exists, such as the parser's streaming check
+    public static UserRoute routeOf(HttpRequest request) {
+        return userRouter.getRoute(request.getMethod(), request.getPath());
+    }
+
+    // Later duplicates win; quotes around names and values are stripped
+    private static Map<String, String> parseCookies(String header) {
+        Map<String, String> parsed = new HashMap<>();
+
+        if (header == null) {
+            return parsed;
+        }
+
+        for (String segment : header.split(";")) {
+            String[] pair = segment.split("=");
+
+            if (pair.length == 2) {
+                parsed.put(stripQuotes(pair[0].trim()), stripQuotes(pair[1].trim()));
+            }
+        }
+
+        return parsed;
+    }
+
+    private static String stripQuotes(String value) {
+        return value.replaceAll("^\"|\"$", "");
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Admission priority classes used by AdmissionController when the server is under load.
+ * Each priority may only occupy a share of the current concurrency limit, so lower
+ * priority work is shed first while cheap, user-facing reads keep flowing.
+ * <p>
+ * Priority classes:
+ * - HIGH: static files and session-backed reads (up to 100% of the limit)
+ * - NORMAL: authenticated profile updates (up to 80% of the limit)
+ * - LOW: login and registration, which run bcrypt (up to 50% of the limit)
+ *
+ * @see AdmissionController
+ * @see UserRoute
+ */
+public enum RequestPriority {
+    HIGH(1.0),
+    NORMAL(0.8),
+    LOW(0.5);
+
+    private final double limitShare;
+
+    RequestPriority(double limitShare) {
+        this.limitShare = limitShare;
+    }
+
+    public double limitShare() {
+        return limitShare;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Immutable limits applied while reading a request from, and writing a response to, a client.
+ * Protects the server from slowloris-style clients that hold sockets and threads open
+ * by sending (or reading) data as slowly as possible.
+ *
+ * @param idleTimeoutMillis maximum time a single socket read may block (SO_TIMEOUT)
+ * @param headerTimeoutMillis maximum total time to receive the request line and headers
+ * @param bodyTimeoutMillis maximum total time to receive the request body
+ * @param writeTimeoutMillis maximum time a single response write may block
+ * @param minBodyBytesPerSecond minimum average body transfer rate once the grace period has passed
+ * @param minRateGraceMillis time spent waiting on the client before the minimum transfer rate is enforced
+ * @param maxHeaderCount maximum number of header lines
+ * @param maxHeaderBytes maximum size of the request line and headers combined
+ * @param maxBodyBytes maximum accepted size for bodies buffered into memory
+ * @param maxStreamedBodyBytes maximum accepted size for bodies streamed to a handler
+ * @see HttpRequestParser
+ * @see DisconnectReason
+ */
+public record RequestReadLimits(
+        int idleTimeoutMillis,
+        long headerTimeoutMillis,
+        long bodyTimeoutMillis,
+        long writeTimeoutMillis,
+        long minBodyBytesPerSecond,
+        long minRateGraceMillis,
+        int maxHeaderCount,
+        int maxHeaderBytes,
+        int maxBodyBytes,
+        long maxStreamedBodyBytes
+) {
+    public static RequestReadLimits defaults() {
+        return new RequestReadLimits(5_000, 10_000, 30_000, 30_000, 1024, 2_000, 100, 16 * 1024,
+                10 * 1024 * 1024, 1024L * 1024 * 1024);
+    }
+}
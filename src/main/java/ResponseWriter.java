@@ -0,0 +1,250 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serializes HttpResponse objects onto the wire without copying the body.
+ * The status line and headers are encoded into one buffer and the body is sent as-is,
+ * using a single gathering write when the connection exposes a channel. File segments
+ * are sent with FileChannel.transferTo from their position.
+ * <p>
+ * Large bodies go out WRITE_CHUNK_BYTES at a time, reporting each chunk to the caller's
+ * onChunkWritten listener so a write watchdog can tell a slow client from a stalled one.
+ * <p>
+ * Responsibilities:
+ * - Cache encoded status lines per status code
+ * - Reuse pre-encoded bytes for common header names and values (including the cached Date)
+ * - Write headers and body with GatheringByteChannel.write(ByteBuffer[]), or two stream
+ *   writes when no channel is available
+ * - Stream BodyWriter output after the head using chunked transfer-encoding
+ * <p>
+ * All lines are terminated with CRLF as required by HTTP/1.1.
+ *
+ * @see HttpResponse
+ * @see ChunkedOutputStream
+ * @see HttpDate
+ * @see HttpServer
+ */
+public class ResponseWriter {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] HEADER_SEPARATOR = {':', ' '};
+    private static final int STREAM_BUFFER_SIZE = 17 * 1024; // one chunk plus its framing
+    // Each chunk must finish within the write timeout, so this sets the slowest client that keeps up
+    private static final int WRITE_CHUNK_BYTES = 64 * 1024;
+    private static final Runnable NO_PROGRESS_LISTENER = () -> {
+    };
+    private static final String HTTP_VERSION = "HTTP/1.1";
+    private static final Map<Integer, byte[]> statusLines = new ConcurrentHashMap<>();
+    private static final Map<String, byte[]> encodedHeaderNames = encodeAll(
+            "Content-Type", "Content-Length", "Date", "Connection", "Set-Cookie", "Retry-After",
+            "Cache-Control", "ETag", "Last-Modified", "Accept-Ranges", "Content-Range", "Content-Encoding",
+            "Transfer-Encoding", "Content-Disposition");
+    private static final Map<String, byte[]> encodedHeaderValues = encodeAll(
+            "close", "application/json", "text/html", "text/plain", "text/css", "text/javascript", "bytes", "chunked");
+
+    public static void write(HttpResponse response, GatheringByteChannel channel) throws IOException {
+        write(response, channel, NO_PROGRESS_LISTENER);
+    }
+
+    /**
+     * @param onChunkWritten called each time a chunk of the response has been written
+     */
+    public static void write(HttpResponse response, GatheringByteChannel channel, Runnable onChunkWritten)
+            throws IOException {
+        List<ByteBuffer> pending = new ArrayList<>();
+        pending.add(encodeHead(response));
+
+        if (response.hasStreamingBody()) {
+            writeGathered(pending, channel, onChunkWritten);
+            writeStreamingBody(response, Channels.newOutputStream(channel), onChunkWritten);
+            return;
+        }
+
+        for (BodySegment segment : response.getBodySegments()) {
+            if (segment.isFile()) {
+                writeGathered(pending, channel, onChunkWritten);
+                transferFile(segment, channel, onChunkWritten);
+                continue;
+            }
+
+            byte[] bytes = segment.bytes();
+
+            for (int offset = 0; offset < bytes.length; offset += WRITE_CHUNK_BYTES) {
+                if (offset > 0) {
+                    writeGathered(pending, channel, onChunkWritten);
+                }
+                pending.add(ByteBuffer.wrap(bytes, offset, Math.min(WRITE_CHUNK_BYTES, bytes.length - offset)));
+            }
+        }
+
+        writeGathered(pending, channel, onChunkWritten);
+    }
+
+    public static void write(HttpResponse response, OutputStream outputStream) throws IOException {
+        write(response, outputStream, NO_PROGRESS_LISTENER);
+    }
+
+    public static void write(HttpResponse response, OutputStream outputStream, Runnable onChunkWritten)
+            throws IOException {
+        ByteBuffer head = encodeHead(response);
+        outputStream.write(head.array(), 0, head.limit());
+
+        if (response.hasStreamingBody()) {
+            writeStreamingBody(response, outputStream, onChunkWritten);
+            return;
+        }
+
+        for (BodySegment segment : response.getBodySegments()) {
+            if (segment.isFile()) {
+                outputStream.flush();
+                transferFile(segment, Channels.newChannel(outputStream), onChunkWritten);
+                continue;
+            }
+
+            byte[] bytes = segment.bytes();
+
+            for (int offset = 0; offset < bytes.length; offset += WRITE_CHUNK_BYTES) {
+                outputStream.write(bytes, offset, Math.min(WRITE_CHUNK_BYTES, bytes.length - offset));
+                onChunkWritten.run();
+            }
+        }
+
+        outputStream.flush();
+    }
+
+    // The terminating chunk is only sent if the body writer completes, so failures show as truncation
+    private static void writeStreamingBody(HttpResponse response, OutputStream outputStream, Runnable onChunkWritten)
+            throws IOException {
+        ChunkedOutputStream chunkedStream = new ChunkedOutputStream(
+                new BufferedOutputStream(outputStream, STREAM_BUFFER_SIZE), onChunkWritten);
+        response.getBodyWriter().writeTo(chunkedStream);
+        chunkedStream.finish();
+    }
+
+    private static void writeGathered(List<ByteBuffer> pending, GatheringByteChannel channel, Runnable onChunkWritten)
+            throws IOException {
+        ByteBuffer[] buffers = pending.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+
+        pending.clear();
+
+        if (remaining == 0) {
+            return;
+        }
+
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+
+        onChunkWritten.run();
+    }
+
+    // Served from the file's position directly; the file content never lands on the heap.
+    // A blocking transferTo may send the whole file in one call, so each call is capped at a chunk
+    private static void transferFile(BodySegment segment, WritableByteChannel target, Runnable onChunkWritten)
+            throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(segment.file(), StandardOpenOption.READ)) {
+            long position = segment.position();
+            long remaining = segment.length();
+
+            while (remaining > 0) {
+                long transferred = fileChannel.transferTo(position, Math.min(remaining, WRITE_CHUNK_BYTES), target);
+
+                if (transferred <= 0 && position >= fileChannel.size()) {
+                    throw new IOException("File truncated while sending: " + segment.file());
+                }
+
+                position += transferred;
+                remaining -= transferred;
+                onChunkWritten.run();
+            }
+        }
+    }
+
+    private static ByteBuffer encodeHead(HttpResponse response) {
+        HeadBuffer head = new HeadBuffer();
+        head.put(getStatusLine(response));
+
+        response.getHeaders().forEach((name, value) -> {
+            head.put(encodedHeaderNames.get(name), name);
+            head.put(HEADER_SEPARATOR);
+            head.put(encodeHeaderValue(name, value), value);
+            head.put(CRLF);
+        });
+        head.put(CRLF);
+
+        return head.toByteBuffer();
+    }
+
+    private static byte[] getStatusLine(HttpResponse response) {
+        int statusCode = response.getStatusCode();
+
+        // Only the standard HTTP/1.1 form is cached; anything custom is encoded on the spot
+        if (!HTTP_VERSION.equals(response.getVersion())
+                || !HttpResponseBuilder.getReasonPhrase(statusCode).equals(response.getReasonPhrase())) {
+            return (response.getStartLine() + "\r\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        return statusLines.computeIfAbsent(statusCode,
+                code -> (response.getStartLine() + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] encodeHeaderValue(String name, String value) {
+        if (name.equals("Date")) {
+            return value.equals(HttpDate.now()) ? HttpDate.nowBytes() : null;
+        }
+
+        return encodedHeaderValues.get(value);
+    }
+
+    private static Map<String, byte[]> encodeAll(String... values) {
+        Map<String, byte[]> encoded = new HashMap<>();
+
+        for (String value : values) {
+            encoded.put(value, value.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        return Map.copyOf(encoded);
+    }
+
+    // Growable byte array sized for typical response heads, avoiding a StringBuilder round trip
+    private static class HeadBuffer {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        void put(byte[] encoded, String fallback) {
+            put(encoded != null ? encoded : fallback.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void put(byte[] source) {
+            if (length + source.length > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + source.length)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+
+            System.arraycopy(source, 0, bytes, length, source.length);
+            length += source.length;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Records each request's pass through the filter chain and handler as a RouteDispatch
+ * flight recorder event. Runs first so the event covers admission control as well.
+ *
+ * @see FlightEvents
+ * @see AdmissionFilter
+ * @see HttpRequestHandler
+ */
+public class RouteDispatchFilter implements HttpFilter {
+
+    @Override
+    public HttpResponse filter(RequestContext context, FilterChain chain) {
+        FlightEvents.RouteDispatch event = new FlightEvents.RouteDispatch();
+        event.begin();
+        HttpResponse response = chain.proceed(context);
+
+        if (event.shouldCommit()) {
+            event.route = context.isUserRequest() ? context.getUserRoute().name() : "STATIC_FILE";
+            event.admitted = context.getAttribute(AdmissionFilter.SHED) == null;
+            event.statusCode = response.getStatusCode();
+            event.commit();
+        }
+
+        return response;
+    }
+}
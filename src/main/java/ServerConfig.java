@@ -0,0 +1,370 @@
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Immutable, typed server configuration loaded once at startup.
+ * Replaces values that were previously hard-coded across the server (port, body limit,
+ * session TTL, cleanup threshold, database settings, load-protection tuning).
+ * <p>
+ * Each key is resolved in order of precedence:
+ * - Environment variable
+ * - .env file in the working directory (via dotenv)
+ * - Properties file (server.properties, or the path in SERVER_CONFIG_FILE)
+ * - Built-in default
+ * <p>
+ * Invalid values fail fast with IllegalStateException so misconfiguration is caught
+ * at startup rather than on a user's request.
+ *
+ * @see HttpServer
+ * @see DBConnectionManager
+ * @see SessionManager
+ */
+public record ServerConfig(
+        int port,
+        ListenerSettings listeners,
+        int maxOpenConnections,
+        int shutdownDrainSeconds,
+        int warmupIterations,
+        int sessionTtlMinutes,
+        int sessionCleanupInterval,
+        int maxSessions,
+        String breachedPasswordFile,
+        DatabaseSettings database,
+        AdmissionSettings admission,
+        RateLimitSettings rateLimits,
+        AvailabilitySettings availability,
+        RequestReadLimits readLimits,
+        ImportSettings userImport,
+        ExportSettings userExport,
+        LookupBatchSettings lookupBatching,
+        EventSettings events,
+        AssetSettings assets,
+        ActivitySettings activity,
+        OutboxSettings outbox,
+        DiagnosticsSettings diagnostics
+) {
+    private static volatile ServerConfig current;
+
+    /**
+     * Returns the process-wide configuration, loading it on first use.
+     */
+    public static ServerConfig get() {
+        ServerConfig config = current;
+
+        if (config == null) {
+            synchronized (ServerConfig.class) {
+                if (current == null) {
+                    current = load();
+                }
+                config = current;
+            }
+        }
+
+        return config;
+    }
+
+    private static ServerConfig load() {
+        Source source = new Source();
+        RequestReadLimits defaultLimits = RequestReadLimits.defaults();
+        String databaseName = source.getString("DB_NAME", "postgres");
+
+        return new ServerConfig(
+                source.getInt("SERVER_PORT", 9000, 0),
+                new ListenerSettings(
+                        source.getBoolean("TCP_ENABLED", true),
+                        source.getString("UNIX_SOCKET_PATH", ""),
+                        source.getString("FORWARDED_FOR_HEADER", "X-Real-IP"),
+                        source.getInt("ACCEPTOR_THREADS", 1, 1),
+                        source.getInt("ACCEPT_BACKLOG", 1024, 1),
+                        source.getBoolean("TCP_NODELAY", true),
+                        source.getInt("SOCKET_RECEIVE_BUFFER_BYTES", 0, 0),
+                        source.getInt("SOCKET_SEND_BUFFER_BYTES", 0, 0)),
+                source.getInt("MAX_OPEN_CONNECTIONS", 10_000, 1),
+                source.getInt("SHUTDOWN_DRAIN_SECONDS", 25, 0),
+                source.getInt("WARMUP_ITERATIONS", 200, 0),
+                source.getInt("SESSION_TTL_MINUTES", 60, 1),
+                source.getInt("SESSION_CLEANUP_INTERVAL", 1000, 1),
+                source.getInt("MAX_SESSIONS", 250_000, 1),
+                source.getString("BREACHED_PASSWORD_FILE", ""),
+                new DatabaseSettings(
+                        String.format("jdbc:postgresql://%s:%s/%s",
+                                source.getString("DB_URL", "localhost"),
+                                source.getString("DB_PORT", "5432"),
+                                databaseName),
+                        source.getString("DB_USER", ""),
+                        source.getString("DB_PASSWORD", ""),
+                        source.getInt("DB_POOL_SIZE", 10, 1),
+                        source.getInt("DB_POOL_MIN_IDLE", 2, 0),
+                        source.getInt("DB_POOL_TIMEOUT_MS", 5_000, 0),
+                        Arrays.stream(source.getString("DB_REPLICA_HOSTS", "").split(","))
+                                .map(String::trim)
+                                .filter(host -> !host.isEmpty())
+                                .map(host -> String.format("jdbc:postgresql://%s/%s", host, databaseName))
+                                .toList(),
+                        source.getInt("DB_REPLICA_RETRY_SECONDS", 10, 0),
+                        source.getInt("DB_READ_YOUR_WRITES_MS", 5_000, 0)),
+                new AdmissionSettings(
+                        source.getInt("ADMISSION_INITIAL_LIMIT", 64, 1),
+                        source.getInt("ADMISSION_MIN_LIMIT", 8, 1),
+                        source.getInt("ADMISSION_MAX_LIMIT", 512, 1),
+                        source.getInt("ADMISSION_TARGET_LATENCY_MS", 250, 1),
+                        source.getInt("RETRY_AFTER_SECONDS", 1, 0)),
+                new RateLimitSettings(
+                        source.getInt("RATE_LIMIT_CLIENT_BURST", 20, 1),
+                        source.getInt("RATE_LIMIT_CLIENT_PER_MINUTE", 30, 1),
+                        source.getInt("RATE_LIMIT_USERNAME_BURST", 5, 1),
+                        source.getInt("RATE_LIMIT_USERNAME_PER_MINUTE", 6, 1),
+                        source.getInt("RATE_LIMIT_MAX_KEYS", 100_000, 1)),
+                new AvailabilitySettings(
+                        source.getInt("AVAILABILITY_FILTER_CAPACITY", 1_000_000, 1),
+                        source.getInt("RATE_LIMIT_AVAILABILITY_BURST", 30, 1),
+                        source.getInt("RATE_LIMIT_AVAILABILITY_PER_MINUTE", 120, 1)),
+                new RequestReadLimits(
+                        source.getInt("IDLE_TIMEOUT_MS", defaultLimits.idleTimeoutMillis(), 1),
+                        source.getInt("HEADER_TIMEOUT_MS", (int) defaultLimits.headerTimeoutMillis(), 1),
+                        source.getInt("BODY_TIMEOUT_MS", (int) defaultLimits.bodyTimeoutMillis(), 1),
+                        source.getInt("WRITE_TIMEOUT_MS", (int) defaultLimits.writeTimeoutMillis(), 1),
+                        source.getInt("MIN_BODY_BYTES_PER_SECOND", (int) defaultLimits.minBodyBytesPerSecond(), 1),
+                        source.getInt("MIN_RATE_GRACE_MS", (int) defaultLimits.minRateGraceMillis(), 0),
+                        source.getInt("MAX_HEADER_COUNT", defaultLimits.maxHeaderCount(), 1),
+                        source.getInt("MAX_HEADER_BYTES", defaultLimits.maxHeaderBytes(), 1),
+                        source.getInt("MAX_BODY_BYTES", defaultLimits.maxBodyBytes(), 0),
+                        source.getLong("MAX_STREAMED_BODY_BYTES", defaultLimits.maxStreamedBodyBytes())),
+                new ImportSettings(
+                        source.getString("ADMIN_TOKEN", ""),
+                        source.getInt("IMPORT_BATCH_SIZE", 1_000, 1),
+                        source.getInt("IMPORT_HASH_THREADS", Runtime.getRuntime().availableProcessors(), 1)),
+                new ExportSettings(
+                        source.getInt("EXPORT_MAX_CONCURRENT", 2, 1),
+                        source.getInt("EXPORT_TIMEOUT_SECONDS", 900, 1)),
+                new LookupBatchSettings(
+                        source.getInt("LOOKUP_BATCH_WINDOW_MICROS", 500, 0),
+                        source.getInt("LOOKUP_BATCH_MAX_KEYS", 100, 1)),
+                new EventSettings(
+                        source.getInt("SSE_MAX_SUBSCRIBERS", 5_000, 0),
+                        source.getInt("SSE_SUBSCRIBER_QUEUE_SIZE", 16, 1),
+                        source.getInt("SSE_HEARTBEAT_SECONDS", 15, 1)),
+                new AssetSettings(
+                        source.getBoolean("ASSET_PIPELINE_ENABLED", true),
+                        source.getString("ASSET_OUTPUT_DIR", "build/assets")),
+                new ActivitySettings(
+                        source.getInt("ACTIVITY_FLUSH_INTERVAL_MS", 5_000, 1),
+                        source.getInt("ACTIVITY_FLUSH_BATCH_SIZE", 1_000, 1)),
+                new OutboxSettings(
+                        source.getString("OUTBOX_SINKS", "file:build/outbox/user-events.jsonl"),
+                        source.getInt("OUTBOX_POLL_INTERVAL_MS", 1_000, 1),
+                        source.getInt("OUTBOX_BATCH_SIZE", 100, 1)),
+                new DiagnosticsSettings(
+                        source.getBoolean("PINNING_MONITOR_ENABLED", true),
+                        source.getInt("PINNING_THRESHOLD_MS", 20, 0))
+        );
+    }
+
+    /**
+     * @param tcpEnabled listen on SERVER_PORT; may be turned off when a Unix socket is configured
+     * @param unixSocketPath Unix domain socket to listen on as well, e.g. for a reverse proxy
+     *                       on the same host; blank disables it
+     * @param forwardedForHeader header the proxy on the Unix socket sets to the client's address,
+     *                           used as the rate-limit key for requests arriving there
+     * @param acceptorThreads threads accepting TCP connections, each on its own SO_REUSEPORT
+     *                        socket where the platform supports it
+     * @param backlog pending connections the kernel queues per listening socket
+     * @param tcpNoDelay disable Nagle's algorithm on accepted connections
+     * @param receiveBufferBytes SO_RCVBUF for accepted connections; 0 keeps the OS default
+     * @param sendBufferBytes SO_SNDBUF for accepted connections; 0 keeps the OS default
+     * @see HttpServer
+     * @see AcceptRateMeter
+     */
+    public record ListenerSettings(boolean tcpEnabled, String unixSocketPath, String forwardedForHeader,
+                                   int acceptorThreads, int backlog, boolean tcpNoDelay,
+                                   int receiveBufferBytes, int sendBufferBytes) {
+        public ListenerSettings {
+            if (!tcpEnabled && unixSocketPath.isEmpty()) {
+                throw new IllegalStateException("TCP_ENABLED=false requires UNIX_SOCKET_PATH");
+            }
+        }
+    }
+
+    /**
+     * @param connectionUrl JDBC URL built from DB_URL, DB_PORT and DB_NAME
+     * @param poolSize maximum number of pooled connections
+     * @param minIdle connections opened during startup warm-up
+     * @param poolTimeoutMillis how long a request waits for a free connection
+     * @param replicaUrls JDBC URLs of read replicas, one per host:port in DB_REPLICA_HOSTS;
+     *                    each replica gets its own pool with the same size and credentials
+     * @param replicaRetrySeconds how long a failed replica is skipped before it is tried again
+     * @param readYourWritesMillis how long reads touching just-written data stay on the primary
+     */
+    public record DatabaseSettings(String connectionUrl, String user, String password,
+                                   int poolSize, int minIdle, int poolTimeoutMillis, List<String> replicaUrls,
+                                   int replicaRetrySeconds, int readYourWritesMillis) {
+    }
+
+    /**
+     * @see AdmissionController
+     */
+    public record AdmissionSettings(int initialLimit, int minLimit, int maxLimit,
+                                    int targetLatencyMillis, int retryAfterSeconds) {
+    }
+
+    /**
+     * @see RateLimiter
+     */
+    public record RateLimitSettings(int clientBurst, int clientPerMinute,
+                                    int usernameBurst, int usernamePerMinute, int maxKeys) {
+    }
+
+    /**
+     * @param filterCapacity minimum number of entries each availability filter is sized for
+     * @param burst availability checks a client may make at once (checks run per keystroke)
+     * @param perMinute sustained availability checks per client
+     * @see AvailabilityIndex
+     */
+    public record AvailabilitySettings(int filterCapacity, int burst, int perMinute) {
+    }
+
+    /**
+     * @param adminToken bearer token required by admin endpoints; blank disables them
+     * @param batchSize rows hashed and written per database round trip
+     * @param hashThreads platform threads used to hash imported passwords
+     * @see UserImporter
+     */
+    public record ImportSettings(String adminToken, int batchSize, int hashThreads) {
+    }
+
+    /**
+     * @param maxConcurrent HTTP exports allowed at once; each holds a database connection throughout
+     * @param timeoutSeconds longest an HTTP export may run before it is cut off
+     * @see UserExporter
+     */
+    public record ExportSettings(int maxConcurrent, int timeoutSeconds) {
+    }
+
+    /**
+     * @param windowMicros how long a lookup waits for others to share its query while the database is busy
+     * @param maxBatchSize keys per batched lookup query; 1 disables batching
+     * @see UserLookupBatcher
+     */
+    public record LookupBatchSettings(int windowMicros, int maxBatchSize) {
+    }
+
+    /**
+     * @param maxSubscribers open event streams allowed at once
+     * @param subscriberQueueSize undelivered events held per stream before the oldest is dropped
+     * @param heartbeatSeconds idle interval between heartbeats (capped at half the write timeout)
+     * @see ServerEvents
+     */
+    public record EventSettings(int maxSubscribers, int subscriberQueueSize, int heartbeatSeconds) {
+    }
+
+    /**
+     * @param enabled bundle and fingerprint the frontend at startup; disable to serve live source edits
+     * @param outputDirectory where the built assets are written
+     * @see AssetPipeline
+     */
+    public record AssetSettings(boolean enabled, String outputDirectory) {
+    }
+
+    /**
+     * @param flushIntervalMillis how often buffered login activity is written to the database
+     * @param flushBatchSize users updated per batched statement
+     * @see ActivityTracker
+     */
+    public record ActivitySettings(int flushIntervalMillis, int flushBatchSize) {
+    }
+
+    /**
+     * @param sinks comma-separated EventSink specs: file:PATH, socket:PATH (Unix domain socket)
+     *              or memory; empty disables the relay and leaves events in the outbox
+     * @param pollIntervalMillis how often the relay checks the outbox once it is empty
+     * @param batchSize events read, published and deleted per relay transaction
+     * @see OutboxRelay
+     */
+    public record OutboxSettings(String sinks, int pollIntervalMillis, int batchSize) {
+    }
+
+    /**
+     * @param pinningMonitorEnabled stream virtual-thread pinning events in-process and report JDBC pinning
+     * @param pinningThresholdMillis shortest pin worth reporting
+     * @see VirtualThreadPinningMonitor
+     */
+    public record DiagnosticsSettings(boolean pinningMonitorEnabled, int pinningThresholdMillis) {
+    }
+
+    private static class Source {
+        private final Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+        private final Properties properties = loadProperties();
+
+        String getString(String key, String defaultValue) {
+            String value = dotenv.get(key); // dotenv checks environment variables before .env
+
+            if (value == null) {
+                value = properties.getProperty(key);
+            }
+
+            return value != null ? value.trim() : defaultValue;
+        }
+
+        // Every count, size, rate and interval has a floor; 0 or less would otherwise surface later as a
+        // division by zero or a rejected schedule period rather than at startup
+        int getInt(String key, int defaultValue, int minValue) {
+            long value = getLong(key, defaultValue);
+
+            if (value < minValue || value > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Value out of range for " + key + " (minimum " + minValue + "): " + value);
+            }
+
+            return (int) value;
+        }
+
+        boolean getBoolean(String key, boolean defaultValue) {
+            String value = getString(key, null);
+
+            if (value == null || value.isEmpty()) {
+                return defaultValue;
+            }
+
+            return switch (value.toLowerCase()) {
+                case "true", "yes", "1" -> true;
+                case "false", "no", "0" -> false;
+                default -> throw new IllegalStateException("Invalid boolean for " + key + ": " + value);
+            };
+        }
+
+        long getLong(String key, long defaultValue) {
+            String value = getString(key, null);
+
+            if (value == null || value.isEmpty()) {
+                return defaultValue;
+            }
+
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Invalid integer for " + key + ": " + value);
+            }
+        }
+
+        private Properties loadProperties() {
+            Properties loaded = new Properties();
+            String configFile = dotenv.get("SERVER_CONFIG_FILE");
+            Path path = Path.of(configFile != null ? configFile : "server.properties");
+
+            if (Files.isReadable(path)) {
+                try (InputStream inputStream = Files.newInputStream(path)) {
+                    loaded.load(inputStream);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to read config file " + path + ": " + e.getMessage());
+                }
+            }
+
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single Server-Sent Event published through ServerEvents, addressed either to every
+ * subscriber or to the subscribers of one user.
+ * <p>
+ * Events are lightweight hints ("something changed, refetch it"), never the changed data
+ * itself, so a newer event of the same name safely replaces an older undelivered one.
+ *
+ * @param name SSE event name, also the coalescing key
+ * @param data single-line JSON payload
+ * @param userId addressed user, or ALL_USERS for a broadcast
+ * @see ServerEvents
+ */
+public record ServerEvent(String name, String data, int userId) {
+    public static final int ALL_USERS = 0; // User ids are generated from 1
+
+    public static ServerEvent broadcast(String name, String data) {
+        return new ServerEvent(name, data, ALL_USERS);
+    }
+
+    public static ServerEvent forUser(int userId, String name, String data) {
+        return new ServerEvent(name, data, userId);
+    }
+
+    public boolean isFor(int subscriberUserId) {
+        return userId == ALL_USERS || userId == subscriberUserId;
+    }
+
+    public byte[] toWireFormat() {
+        return ("event: " + name + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-Sent Events hub pushing session and user-list change notifications to connected
+ * browsers, replacing polling and page reloads.
+ * <p>
+ * Responsibilities:
+ * - Accept events from SessionManager and UserDAO without ever blocking the publisher
+ * - Fan each event out to matching subscribers from a single fan-out thread
+ * - Keep a small bounded queue per subscriber, coalescing events of the same name and
+ *   dropping the oldest when full
+ * - Stream each subscriber's events on its own connection thread, with heartbeats
+ * - End a stream with session-ended once its session is invalidated or expires
+ * - Close every stream on shutdown so connections drain promptly
+ * <p>
+ * The fan-out thread only moves events into queues; slow clients block their own connection
+ * thread, never the fan-out or each other. Heartbeats are sent well inside the write timeout
+ * so the HttpServer stall watchdog only cuts streams whose writes are really stuck.
+ *
+ * @see ServerEvent
+ * @see UserRequestHandler
+ * @see SessionManager
+ * @see ServerConfig
+ */
+public class ServerEvents {
+    public static final String SESSION_ENDED = "session-ended";
+    public static final String USERS_CHANGED = "users-changed";
+    public static final String PROFILE_CHANGED = "profile-changed";
+
+    private static final int PUBLISH_QUEUE_CAPACITY = 10_000;
+    private static final int RECONNECT_DELAY_MILLIS = 5_000;
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final ServerConfig.EventSettings settings = ServerConfig.get().events();
+    private static final long HEARTBEAT_NANOS = TimeUnit.MILLISECONDS.toNanos(Math.min(
+            settings.heartbeatSeconds() * 1000L, ServerConfig.get().readLimits().writeTimeoutMillis() / 2));
+
+    private static final BlockingQueue<ServerEvent> published = new LinkedBlockingQueue<>(PUBLISH_QUEUE_CAPACITY);
+    private static final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger subscriberCount = new AtomicInteger();
+    private static final LongAdder coalescedEvents = new LongAdder();
+    private static final LongAdder droppedEvents = new LongAdder();
+    private static volatile boolean shuttingDown;
+
+    static {
+        Thread.ofPlatform().daemon().name("event-fanout").start(ServerEvents::fanOut);
+    }
+
+    public static void publishSessionEnded(int userId) {
+        publish(ServerEvent.forUser(userId, SESSION_ENDED, "{}"));
+    }
+
+    public static void publishUsersChanged() {
+        publish(ServerEvent.broadcast(USERS_CHANGED, "{}"));
+    }
+
+    public static void publishProfileChanged(int userId) {
+        publish(ServerEvent.forUser(userId, PROFILE_CHANGED, "{\"id\": " + userId + "}"));
+    }
+
+    public static boolean isAcceptingSubscribers() {
+        return !shuttingDown && subscriberCount.get() < settings.maxSubscribers();
+    }
+
+    /**
+     * Returns a body writer that streams events for the given session until the session ends,
+     * the client disconnects or the server shuts down. The subscriber is registered only once
+     * the writer runs, so a response that is never written leaves nothing behind.
+     */
+    public static HttpResponse.BodyWriter subscription(String sessionId, int userId) {
+        return outputStream -> {
+            Subscriber subscriber = new Subscriber(sessionId, userId, settings.subscriberQueueSize());
+            subscriberCount.incrementAndGet();
+            subscribers.add(subscriber);
+
+            try {
+                if (!shuttingDown) {
+                    stream(subscriber, outputStream);
+                }
+            } finally {
+                subscribers.remove(subscriber);
+                subscriberCount.decrementAndGet();
+            }
+        };
+    }
+
+    public static void shutdown() {
+        shuttingDown = true;
+        subscribers.forEach(Subscriber::close);
+    }
+
+    public static int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public static long getCoalescedCount() {
+        return coalescedEvents.sum();
+    }
+
+    public static long getDroppedCount() {
+        return droppedEvents.sum();
+    }
+
+    private static void publish(ServerEvent event) {
+        if (!published.offer(event)) {
+            droppedEvents.increment();
+        }
+    }
+
+    private static void fanOut() {
+        try {
+            while (true) {
+                ServerEvent event = published.take();
+
+                for (Subscriber subscriber : subscribers) {
+                    if (event.isFor(subscriber.userId)) {
+                        subscriber.offer(event);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Session state is re-checked on every wake-up rather than trusting session-ended events,
+    // since a browser may already have reconnected with a new session by the time one arrives
+    private static void stream(Subscriber subscriber, OutputStream outputStream) throws IOException {
+        outputStream.write(("retry: " + RECONNECT_DELAY_MILLIS + "\n\n").getBytes(StandardCharsets.US_ASCII));
+        outputStream.flush();
+
+        while (true) {
+            List<ServerEvent> events = subscriber.awaitEvents(HEARTBEAT_NANOS);
+
+            if (subscriber.isClosed()) {
+                return;
+            }
+
+            if (!SessionManager.isActiveSession(subscriber.sessionId)) {
+                outputStream.write(ServerEvent.forUser(subscriber.userId, SESSION_ENDED, "{}").toWireFormat());
+                outputStream.flush();
+                return;
+            }
+
+            if (events.isEmpty()) {
+                outputStream.write(HEARTBEAT);
+            }
+
+            for (ServerEvent event : events) {
+                if (!event.name().equals(SESSION_ENDED)) {
+                    outputStream.write(event.toWireFormat());
+                }
+            }
+
+            outputStream.flush();
+        }
+    }
+
+    private static class Subscriber {
+        private final String sessionId;
+        private final int userId;
+        private final int capacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition eventsAvailable = lock.newCondition();
+        private final Map<String, ServerEvent> pending = new LinkedHashMap<>(); // guarded by lock
+        private boolean closed; // guarded by lock
+
+        Subscriber(String sessionId, int userId, int capacity) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.capacity = Math.max(1, capacity);
+        }
+
+        void offer(ServerEvent event) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+
+                if (pending.containsKey(event.name())) {
+                    coalescedEvents.increment();
+                } else if (pending.size() >= capacity) {
+                    String eldest = pending.keySet().iterator().next();
+                    pending.remove(eldest);
+                    droppedEvents.increment();
+                }
+
+                pending.put(event.name(), event);
+                eventsAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return the pending events, or an empty list if none arrived within the timeout
+         */
+        List<ServerEvent> awaitEvents(long timeoutNanos) {
+            lock.lock();
+            try {
+                long remainingNanos = timeoutNanos;
+
+                while (pending.isEmpty() && !closed && remainingNanos > 0) {
+                    remainingNanos = eventsAvailable.awaitNanos(remainingNanos);
+                }
+
+                List<ServerEvent> events = new ArrayList<>(pending.values());
+                pending.clear();
+
+                return events;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+                return List.of();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                eventsAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isClosed() {
+            lock.lock();
+            try {
+                return closed;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Exercises the request pipeline before the listener opens so the first real users
+ * don't pay for class loading, JIT compilation or crypto initialization.
+ * <p>
+ * Responsibilities:
+ * - Initialize BCrypt and its SecureRandom with a throwaway hash and verify
+ * - Run synthetic requests through parsing, routing, static file handling and ResponseWriter
+ * - Touch JSON, validation and session code paths
+ * <p>
+ * Warm-up never touches the database (the pool is warmed separately by DBConnectionManager)
+ * and uses its own AdmissionController so the live limiter starts from a clean state.
+ *
+ * @see HttpServer
+ * @see DBConnectionManager
+ */
+public class ServerWarmup {
+    private static final byte[] STATIC_FILE_REQUEST = ("GET / HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Accept: text/html\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+    private static final String LOGIN_BODY = "{\"username\": \"warmup_user\", \"password\": \"Warmup-Pass1!\"}";
+
+    public static void run(int iterations) {
+        String hash = PasswordUtil.hashPassword("Warmup-Pass1!");
+        PasswordUtil.verifyPassword("Warmup-Pass1!", hash);
+
+        AdmissionController warmupAdmission = new AdmissionController(
+                iterations, 1, Math.max(1, iterations), Integer.MAX_VALUE, 1);
+        HttpRequestHandler requestHandler = new HttpRequestHandler(warmupAdmission);
+        UserRouter router = new UserRouter();
+
+        for (int i = 0; i < iterations; i++) {
+            try {
+                HttpRequest request = new HttpRequestParser(new ByteArrayInputStream(STATIC_FILE_REQUEST))
+                        .parseToHttpRequest();
+                HttpResponse response = requestHandler.getResponse(request);
+                ResponseWriter.write(response, OutputStream.nullOutputStream());
+            } catch (IOException | HttpParsingException e) {
+                System.err.println("Warm-up request failed: " + e.getMessage());
+                return;
+            }
+
+            router.getRoute("POST", "/users/login/");
+            router.getRoute("PATCH", "/users/1/email/");
+            warmJsonAndValidation();
+        }
+
+        String sessionId = SessionManager.setActiveSession(-1);
+        SessionManager.getActiveSession(sessionId);
+        SessionManager.invalidateUserSessions(-1);
+    }
+
+    private static void warmJsonAndValidation() {
+        try {
+            JsonUtil.parseJsonWithRequiredFields(LOGIN_BODY, List.of("username", "password"));
+            UserValidationUtil.validateUsername("warmup_user");
+            UserValidationUtil.validateEmail("warmup@example.com");
+            UserValidationUtil.validatePassword("Warmup-Pass1!");
+        } catch (JsonUtil.MissingRequiredFieldException | ValidationException e) {
+            System.err.println("Warm-up validation failed: " + e.getMessage());
+        }
+    }
+}
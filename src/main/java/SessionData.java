@@ -1,18 +1,18 @@
-import java.time.LocalDateTime;
-
 /**
  * Immutable session data record containing user identification and expiry information.
+ * Decoded from a SessionTable entry on each lookup.
  *
  * @param userId the ID of the authenticated user
- * @param expiry when this session expires
+ * @param expiresAtEpochSecond when this session expires, in seconds since the epoch
  * @see SessionManager
+ * @see SessionTable
  */
-public record SessionData(int userId, LocalDateTime expiry) {
+public record SessionData(int userId, long expiresAtEpochSecond) {
     boolean isActive() {
-        return expiry.isAfter(LocalDateTime.now());
+        return expiresAtEpochSecond > System.currentTimeMillis() / 1000;
     }
 
     boolean isExpired() {
         return !isActive();
     }
-}
\ No newline at end of file
+}
@@ -1,90 +1,121 @@
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages user session data and lifecycle for HTTP-based authentication.
  * Provides in-memory session storage with automatic cleanup and expiry management.
  * <p>
  * Sessions store minimal data (userId + expiry) to avoid cache coherence issues.
- * All session operations are thread-safe using ConcurrentHashMap for concurrent access.
- * Uses counter-based cleanup (every 1000 operations) and 60-minute session timeout.
+ * Sessions live in a fixed-capacity off-heap SessionTable keyed by the session UUID's
+ * 128 bits, so lookups are lock-free and the session count adds no GC pressure.
+ * Uses counter-based cleanup, session timeout and capacity from ServerConfig
+ * (every 1000 operations, 60 minutes and 250,000 sessions by default).
  *
  * @see SessionData
+ * @see SessionTable
  * @see UserRequestHandler
  * @see FileRequestHandler
+ * @see RequestContext
+ * @see ServerConfig
+ * @see ServerEvents
  */
 public class SessionManager {
-    private static final Map<String, SessionData> activeSessions = new ConcurrentHashMap<>();
-    private static long sessionCleanupCounter = 0;
+    private static final SessionTable activeSessions = new SessionTable(ServerConfig.get().maxSessions());
+    private static final AtomicLong sessionCleanupCounter = new AtomicLong();
+    private static final int SESSION_TTL_MINUTES = ServerConfig.get().sessionTtlMinutes();
+    private static final int SESSION_CLEANUP_INTERVAL = ServerConfig.get().sessionCleanupInterval();
+    private static final int SESSION_ID_LENGTH = 36;
+
+    // The id comes from RequestContext, which parses the sessionId cookie once per request
+    protected static SessionData getActiveSession(String sessionId) {
+        return lookupSession(sessionId);
+    }
 
-    private static String extractSessionIdFromCookie(String cookie) {
-        String sessionId = "";
-        String[] segments = cookie.split(";");
+    protected static boolean isActiveSession(String sessionId) {
+        return lookupSession(sessionId) != null;
+    }
 
-        for (String segment : segments) {
-            String[] pairs = segment.split("=");
+    protected static String setActiveSession(int userId) {
+        UUID sessionId = UUID.randomUUID();
+        long expiresAtEpochSecond = System.currentTimeMillis() / 1000 + SESSION_TTL_MINUTES * 60L;
 
-            if (pairs.length == 2) {
-                String key = pairs[0].trim().replaceAll("^\"|\"$","");
-                String value = pairs[1].trim().replaceAll("^\"|\"$","");
+        activeSessions.put(sessionId.getMostSignificantBits(), sessionId.getLeastSignificantBits(),
+                userId, expiresAtEpochSecond);
 
-                if (key.equals("sessionId")) {
-                    sessionId = value;
-                }
-            }
+        if (sessionCleanupCounter.incrementAndGet() % SESSION_CLEANUP_INTERVAL == 0) {
+            removeInactiveSessions();
         }
 
-        return sessionId;
+        return sessionId.toString();
     }
 
-    protected static SessionData getActiveSession(String cookie) {
-        String sessionId = extractSessionIdFromCookie(cookie);
-        SessionData sessionData = activeSessions.get(sessionId);
+    protected static void invalidateUserSessions(int userId) {
+        activeSessions.removeIf(packed -> SessionTable.userIdOf(packed) == userId);
+        ServerEvents.publishSessionEnded(userId);
+    }
 
-        if (sessionData == null || sessionData.isExpired()) {
-            return null;
-        }
+    protected static int getActiveSessionCount() {
+        return activeSessions.size();
+    }
 
-        return sessionData;
+    protected static long getEvictedSessionCount() {
+        return activeSessions.getEvictionCount();
     }
 
-    protected static String setActiveSession(int userId) {
-        String sessionId = UUID.randomUUID().toString();
-        LocalDateTime currentDateTime = LocalDateTime.now();
-        LocalDateTime expiryDateTime = currentDateTime.plusMinutes(60);
+    private static SessionData lookupSession(String sessionId) {
+        if (!isWellFormedSessionId(sessionId)) {
+            return null;
+        }
 
-        activeSessions.put(sessionId, new SessionData(userId, expiryDateTime));
+        long packed = activeSessions.get(parseHex(sessionId, 0, 18), parseHex(sessionId, 19, SESSION_ID_LENGTH));
 
-        if (sessionCleanupCounter++ == 1000) {
-            removeInactiveSessions();
+        if (packed == SessionTable.NOT_FOUND) {
+            return null;
         }
 
-        return sessionId;
+        SessionData sessionData = new SessionData(SessionTable.userIdOf(packed), SessionTable.expiryOf(packed));
+        return sessionData.isExpired() ? null : sessionData;
     }
 
-    protected static void invalidateUserSessions(int userId) {
-        activeSessions.entrySet().removeIf(
-                entry -> entry.getValue().userId() == userId
-        );
+    private static void removeInactiveSessions() {
+        long nowSecond = System.currentTimeMillis() / 1000;
+        activeSessions.removeIf(packed -> SessionTable.expiryOf(packed) <= nowSecond);
     }
 
-    private static void removeInactiveSessions() {
-        List<String> expiredSessionIds = new ArrayList<>();
+    // Canonical lowercase UUID form, as issued by setActiveSession
+    private static boolean isWellFormedSessionId(String sessionId) {
+        if (sessionId == null || sessionId.length() != SESSION_ID_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < SESSION_ID_LENGTH; i++) {
+            char c = sessionId.charAt(i);
+            boolean isDashPosition = i == 8 || i == 13 || i == 18 || i == 23;
 
-        for (Map.Entry<String, SessionData> entry : activeSessions.entrySet()) {
-            if (entry.getValue().isExpired()) {
-                expiredSessionIds.add(entry.getKey());
+            if (isDashPosition ? c != '-' : !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
             }
         }
 
-        for (String sessionId : expiredSessionIds) {
-            activeSessions.remove(sessionId);
+        return true;
+    }
+
+    // Reads the 64 bits in sessionId[start, end), skipping dashes, without allocating
+    private static long parseHex(String sessionId, int start, int end) {
+        long bits = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = sessionId.charAt(i);
+
+            if (c != '-') {
+                bits = (bits << 4) | Character.digit(c, 16);
+            }
         }
 
-        sessionCleanupCounter = 0;
+        return bits;
+    }
+
+    protected static int getSessionTtlSeconds() {
+        return SESSION_TTL_MINUTES * 60;
     }
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Fixed-size, off-heap open-addressing hash table of sessions keyed by 128-bit session id.
+ * Replaces a map of String keys and record values, so millions of sessions cost a fixed
+ * block of native memory and no garbage-collected objects.
+ * <p>
+ * Responsibilities:
+ * - Store each session in three longs: id high bits, id low bits, and a packed value
+ *   holding the user id (high 32 bits) and expiry second (low 32 bits)
+ * - Look sessions up without locking or allocating, via optimistic reads
+ * - Remove entries by predicate (expired, or belonging to a user) in one sweep
+ * - When full, drop expired sessions, then evict the soonest-expiring nearby session
+ * <p>
+ * Linear probing with backward-shift deletion keeps probe sequences short without tombstones.
+ * Writers take an exclusive StampedLock; readers retry under the read lock only if a write
+ * overlapped. An all-zero id marks an empty slot, so it is never a valid session id.
+ *
+ * @see SessionManager
+ */
+public class SessionTable {
+    public static final long NOT_FOUND = 0;
+    private static final int SLOT_LONGS = 3;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final int EVICTION_CANDIDATES = 64;
+    private static final long EXPIRY_BASE_SECOND = 1_700_000_000L; // Packed expiries fit 32 bits until 2160
+
+    private final LongBuffer slots;
+    private final int mask;
+    private final int maxSessions;
+    private final StampedLock lock = new StampedLock();
+    private final LongAdder evictions = new LongAdder();
+    private int size; // guarded by the write lock
+    private long lastFullSweepSecond; // guarded by the write lock
+
+    public SessionTable(int maxSessions) {
+        if (maxSessions < 1 || maxSessions > (1 << 28)) {
+            throw new IllegalArgumentException("Session capacity out of range: " + maxSessions);
+        }
+
+        int slotCount = Integer.highestOneBit(Math.max(2, (int) Math.ceil(maxSessions / MAX_LOAD_FACTOR)) - 1) << 1;
+
+        this.slots = ByteBuffer.allocateDirect(slotCount * SLOT_LONGS * Long.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asLongBuffer();
+        this.mask = slotCount - 1;
+        this.maxSessions = maxSessions;
+    }
+
+    public static long pack(int userId, long expiresAtEpochSecond) {
+        return ((long) userId << 32) | ((expiresAtEpochSecond - EXPIRY_BASE_SECOND) & 0xFFFFFFFFL);
+    }
+
+    public static int userIdOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    public static long expiryOf(long packed) {
+        return (packed & 0xFFFFFFFFL) + EXPIRY_BASE_SECOND;
+    }
+
+    /**
+     * @return the packed user id and expiry for the session, or NOT_FOUND
+     */
+    public long get(long idHigh, long idLow) {
+        long stamp = lock.tryOptimisticRead();
+        long packed = find(idHigh, idLow);
+
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                packed = find(idHigh, idLow);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        return packed;
+    }
+
+    public void put(long idHigh, long idLow, int userId, long expiresAtEpochSecond) {
+        if (idHigh == 0 && idLow == 0) {
+            throw new IllegalArgumentException("The all-zero session id is reserved");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int index = findSlot(idHigh, idLow);
+
+            if (isOccupied(index)) {
+                slots.put(index * SLOT_LONGS + 2, pack(userId, expiresAtEpochSecond));
+                return;
+            }
+
+            if (size >= maxSessions) {
+                makeRoom(idHigh, idLow);
+                index = findSlot(idHigh, idLow); // Deletion may have shifted the probe run
+            }
+
+            slots.put(index * SLOT_LONGS, idHigh);
+            slots.put(index * SLOT_LONGS + 1, idLow);
+            slots.put(index * SLOT_LONGS + 2, pack(userId, expiresAtEpochSecond));
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes every session whose packed value matches the predicate.
+     *
+     * @return the number of sessions removed
+     */
+    public int removeIf(LongPredicate packedMatcher) {
+        long stamp = lock.writeLock();
+        try {
+            return removeMatching(packedMatcher);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private long find(long idHigh, long idLow) {
+        int index = home(idHigh, idLow);
+
+        // Bounded by the table size so a torn optimistic read can never loop forever
+        for (int probes = 0; probes <= mask; probes++) {
+            long high = slots.get(index * SLOT_LONGS);
+            long low = slots.get(index * SLOT_LONGS + 1);
+
+            if (high == 0 && low == 0) {
+                return NOT_FOUND;
+            }
+
+            if (high == idHigh && low == idLow) {
+                return slots.get(index * SLOT_LONGS + 2);
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return NOT_FOUND;
+    }
+
+    // Must hold the write lock; returns the slot holding the id, or the empty slot ending its probe run
+    private int findSlot(long idHigh, long idLow) {
+        int index = home(idHigh, idLow);
+
+        while (isOccupied(index)) {
+            if (slots.get(index * SLOT_LONGS) == idHigh && slots.get(index * SLOT_LONGS + 1) == idLow) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return index;
+    }
+
+    // Must hold the write lock
+    private int removeMatching(LongPredicate packedMatcher) {
+        int removed = 0;
+
+        for (int index = 0; index <= mask; index++) {
+            // Deletion shifts a later entry into this slot, so check it again before moving on
+            while (isOccupied(index) && packedMatcher.test(slots.get(index * SLOT_LONGS + 2))) {
+                deleteAt(index);
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    // Must hold the write lock
+    private void makeRoom(long idHigh, long idLow) {
+        long nowSecond = System.currentTimeMillis() / 1000;
+
+        // A sweep scans the whole table, so a table full of live sessions is swept at most once a second
+        if (nowSecond != lastFullSweepSecond) {
+            lastFullSweepSecond = nowSecond;
+
+            if (removeMatching(packed -> expiryOf(packed) <= nowSecond) > 0) {
+                return;
+            }
+        }
+
+        int index = home(idHigh, idLow);
+        int victim = -1;
+        long victimExpiry = Long.MAX_VALUE;
+        int maxCandidates = Math.min(EVICTION_CANDIDATES, size);
+
+        for (int candidates = 0; candidates < maxCandidates; index = (index + 1) & mask) {
+            if (isOccupied(index)) {
+                long expiry = expiryOf(slots.get(index * SLOT_LONGS + 2));
+
+                if (expiry < victimExpiry) {
+                    victim = index;
+                    victimExpiry = expiry;
+                }
+                candidates++;
+            }
+        }
+
+        deleteAt(victim);
+        evictions.increment();
+    }
+
+    // Backward-shift deletion: pull later entries of the probe run into the hole they can reach
+    private void deleteAt(int index) {
+        int hole = index;
+        int next = index;
+
+        while (true) {
+            next = (next + 1) & mask;
+
+            if (!isOccupied(next)) {
+                break;
+            }
+
+            int home = home(slots.get(next * SLOT_LONGS), slots.get(next * SLOT_LONGS + 1));
+
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                for (int i = 0; i < SLOT_LONGS; i++) {
+                    slots.put(hole * SLOT_LONGS + i, slots.get(next * SLOT_LONGS + i));
+                }
+                hole = next;
+            }
+        }
+
+        for (int i = 0; i < SLOT_LONGS; i++) {
+            slots.put(hole * SLOT_LONGS + i, 0);
+        }
+        size--;
+    }
+
+    private boolean isOccupied(int index) {
+        return slots.get(index * SLOT_LONGS) != 0 || slots.get(index * SLOT_LONGS + 1) != 0;
+    }
+
+    // Session ids are random, but mixing guards against ids that only differ in their high bits
+    private int home(long idHigh, long idLow) {
+        long hash = idHigh ^ idLow;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        return (int) hash & mask;
+    }
+}
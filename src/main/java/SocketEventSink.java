@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventSink that streams events as JSON lines to a local Unix domain socket, for a sidecar
+ * or agent on the same host to forward. Connects lazily and reconnects on the next batch
+ * after any failure, so a restarting listener only delays delivery.
+ * <p>
+ * A batch is reported delivered once it has been written to the socket; the listener is
+ * expected to tolerate the duplicates at-least-once delivery implies.
+ * <p>
+ * The channel is non-blocking and each batch must be connected and written within
+ * WRITE_TIMEOUT_MILLIS. publish() runs inside the relay's outbox transaction, so a listener
+ * that stops reading would otherwise hold a primary connection and the batch's row locks
+ * indefinitely. On timeout the connection is dropped, which may leave the listener a partial
+ * line, and the batch is retried on the next poll.
+ *
+ * @see EventSink
+ * @see OutboxRelay
+ */
+public class SocketEventSink implements EventSink {
+    private static final long WRITE_TIMEOUT_MILLIS = 5_000;
+
+    private final Path socketPath;
+    private SocketChannel channel; // guarded by this
+    private Selector selector; // guarded by this
+
+    public SocketEventSink(Path socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        events.forEach(event -> lines.append(event.toJsonLine()));
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT_MILLIS);
+
+        try {
+            if (channel == null) {
+                connect(deadlineNanos);
+            }
+
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0) {
+                    awaitReady(SelectionKey.OP_WRITE, deadlineNanos);
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+        } finally {
+            selector = null;
+
+            if (channel != null) {
+                try {
+                    channel.close();
+                } finally {
+                    channel = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "socket:" + socketPath;
+    }
+
+    private void connect(long deadlineNanos) throws IOException {
+        selector = Selector.open();
+        channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.configureBlocking(false);
+
+        if (!channel.connect(UnixDomainSocketAddress.of(socketPath))) {
+            while (!channel.finishConnect()) {
+                awaitReady(SelectionKey.OP_CONNECT, deadlineNanos);
+            }
+        }
+    }
+
+    private void awaitReady(int operation, long deadlineNanos) throws IOException {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+
+        if (remainingMillis <= 0) {
+            throw new IOException("Event listener on " + socketPath + " not ready within "
+                    + WRITE_TIMEOUT_MILLIS + " ms");
+        }
+
+        channel.register(selector, operation);
+        selector.select(remainingMillis);
+        selector.selectedKeys().clear();
+    }
+}
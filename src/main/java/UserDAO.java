@@ -1,9 +1,19 @@
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for user persistence operations using JDBC.
@@ -14,136 +24,558 @@ import java.util.List;
  * - Map ResultSets to User objects
  * - Return null for "not found" cases, throw SQLException for errors
  * - Use prepared statements for security and performance
+ * - Bulk insert batches through COPY into a staging table when connected to PostgreSQL
+ * - Stream the full table through a server-side cursor for exports
+ * - Record inserted and changed usernames/emails in the AvailabilityIndex
+ * - Keep the UserSearchIndex in step with inserts, updates and deletes
+ * - Coalesce concurrent lookups by id or username into batched queries
+ * - Send reads to a read replica unless the data was just written (read-your-writes)
+ * - Bump the user's UserVersions entry around every update and forget it on delete
+ * - Publish users-changed and profile-changed ServerEvents after writes
+ * - Apply buffered login activity from ActivityTracker in one statement per batch
+ * - Append a user_events outbox row in the same statement as registrations and profile changes,
+ *   and hand committed events to OutboxRelay in batches
+ * - Time every statement as a DatabaseQuery flight recorder event, named after the DAO operation
  *
  * @see UserService
  * @see User
  * @see DBConnectionManager
+ * @see AvailabilityIndex
+ * @see UserSearchIndex
+ * @see UserLookupBatcher
+ * @see UserVersions
+ * @see ServerEvents
+ * @see ActivityTracker
+ * @see OutboxRelay
+ * @see FlightEvents
  */
 public class UserDAO {
-    private final DBConnectionManager dbc = new DBConnectionManager();
+    private static final int STREAM_FETCH_SIZE = 1_000;
+    private static final ServerConfig.LookupBatchSettings LOOKUP_BATCHING = ServerConfig.get().lookupBatching();
+    // Lookups of just-written users are batched separately so they never share a replica query
+    private static final UserLookupBatcher<Integer> usersById = new UserLookupBatcher<>(
+            "by id", LOOKUP_BATCHING, ids -> loadUsersById(ids, false));
+    private static final UserLookupBatcher<Integer> usersByIdOnPrimary = new UserLookupBatcher<>(
+            "by id (primary)", LOOKUP_BATCHING, ids -> loadUsersById(ids, true));
+    private static final UserLookupBatcher<String> usersByUsername = new UserLookupBatcher<>(
+            "by username", LOOKUP_BATCHING, usernames -> loadUsersByUsername(usernames, false));
+    private static final UserLookupBatcher<String> usersByUsernameOnPrimary = new UserLookupBatcher<>(
+            "by username (primary)", LOOKUP_BATCHING, usernames -> loadUsersByUsername(usernames, true));
+    private static final DBConnectionManager dbc = new DBConnectionManager();
 
     public User getUserById(int id) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE id = ?");
-            ps.setInt(1, id);
-            ResultSet rs = ps.executeQuery();
+        return (DBConnectionManager.hasRecentWrite(id) ? usersByIdOnPrimary : usersById).get(id);
+    }
 
-            if (!rs.next()) {
-                return null;
-            }
+    /**
+     * Reads the user from the primary, for responses tagged with a UserVersions ETag: a lagging
+     * replica could otherwise pair an older row with the newer version's tag.
+     */
+    public User getUserByIdFromPrimary(int id) throws SQLException {
+        return usersByIdOnPrimary.get(id);
+    }
 
-            return mapResultSetToUser(rs);
-        }
+    /**
+     * Reads the given users from the primary in one query, for callers that must not see
+     * replica lag. Ids with no user are absent from the result.
+     */
+    public Map<Integer, User> getUsersByIdFromPrimary(Collection<Integer> ids) throws SQLException {
+        return ids.isEmpty() ? Map.of() : loadUsersById(List.copyOf(ids), true);
     }
 
     public User getUserByUsername(String username) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE username = ?");
-            ps.setString(1, username);
-            ResultSet rs = ps.executeQuery();
+        return (DBConnectionManager.hasRecentWrite(username) ? usersByUsernameOnPrimary : usersByUsername)
+                .get(username);
+    }
 
-            if (!rs.next()) {
-                return null;
-            }
+    public User getUserByEmail(String email) throws SQLException {
+        return loadUserByEmail(email, DBConnectionManager.hasRecentWrite(email));
+    }
+
+    /**
+     * Primary-only lookups for credential and uniqueness checks, which must not trust a replica
+     * that may lag past the read-your-writes window.
+     */
+    public User getUserByUsernameFromPrimary(String username) throws SQLException {
+        return usersByUsernameOnPrimary.get(username);
+    }
 
-            return mapResultSetToUser(rs);
+    public User getUserByEmailFromPrimary(String email) throws SQLException {
+        return loadUserByEmail(email, true);
+    }
+
+    public List<User> getAllUsers() throws SQLException {
+        try (Connection conn = getReadConnection(DBConnectionManager.hasRecentWrites());
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM users");
+             ResultSet rs = executeQuery("getAllUsers", ps)) {
+            return mapResultSetToUsers(rs);
         }
     }
 
-    public User getUserByEmail(String email) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE email = ?");
-            ps.setString(1, email);
-            ResultSet rs = ps.executeQuery();
+    /**
+     * Case-insensitive prefix/substring search used while the UserSearchIndex is still building.
+     */
+    public List<User> searchUsers(String query, int limit) throws SQLException {
+        String pattern = "%" + query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
 
-            if (!rs.next()) {
-                return null;
+        try (Connection conn = dbc.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT id, username, email FROM users WHERE username ILIKE ? OR email ILIKE ? "
+                             + "ORDER BY username LIMIT ?")) {
+            ps.setString(1, pattern);
+            ps.setString(2, pattern);
+            ps.setInt(3, limit);
+            List<User> users = new ArrayList<>();
+
+            try (ResultSet rs = executeQuery("searchUsers", ps)) {
+                while (rs.next()) {
+                    users.add(new User(rs.getInt("id"), rs.getString("username"), rs.getString("email"), null));
+                }
             }
 
-            return mapResultSetToUser(rs);
+            return users;
         }
     }
 
-    public List<User> getAllUsers() throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            List<User> users = new ArrayList<>();
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM users");
-            ResultSet rs = ps.executeQuery();
+    public long countUsers() throws SQLException {
+        try (Connection conn = dbc.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM users");
+             ResultSet rs = executeQuery("countUsers", ps)) {
+            rs.next();
+
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Passes every user to the handler in id order without loading the table into memory.
+     * Rows are fetched STREAM_FETCH_SIZE at a time through a server-side cursor; the returned
+     * users carry no password hash. Read from a replica, since the transaction stays open at
+     * the consumer's pace and an export tolerates lag.
+     */
+    public void streamAllUsers(UserRowHandler handler) throws SQLException, IOException {
+        try (Connection conn = dbc.getReplicaConnection()) {
+            conn.setAutoCommit(false); // PostgreSQL only honours the fetch size inside a transaction
 
-            while (rs.next()) {
-                users.add(mapResultSetToUser(rs));
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id, username, email FROM users ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = executeQuery("streamAllUsers", ps)) {
+                    while (rs.next()) {
+                        handler.accept(new User(rs.getInt("id"), rs.getString("username"), rs.getString("email"), null));
+                    }
+                }
             }
 
-            return users;
+            conn.commit();
         }
     }
 
     public boolean deleteUserById(int id) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement(
-                    "DELETE FROM users WHERE id = ?"
-            );
+        try (Connection conn = dbc.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "DELETE FROM users WHERE id = ? RETURNING username, email"
+             )) {
             ps.setInt(1, id);
 
-            return ps.executeUpdate() > 0;
+            try (ResultSet rs = executeQuery("deleteUserById", ps)) {
+                boolean deleted = rs.next();
+                if (deleted) {
+                    DBConnectionManager.recordWrite(id, rs.getString("username"), rs.getString("email"));
+                    UserSearchIndex.recordDeletion(id);
+                    UserVersions.recordDeletion(id);
+                    ServerEvents.publishUsersChanged();
+                }
+
+                return deleted;
+            }
         }
     }
 
     public User insertUser(User user) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO users (username, email, password) VALUES (?, ?, ?) RETURNING *"
-            );
+        try (Connection conn = dbc.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     withOutboxEvent("INSERT INTO users (username, email, password) VALUES (?, ?, ?) RETURNING *")
+             )) {
             ps.setString(1, user.getUsername());
             ps.setString(2, user.getEmail());
             ps.setString(3, user.getPasswordHash());
-            ResultSet rs = ps.executeQuery();
+            ps.setString(4, OutboxEvent.USER_REGISTERED);
 
-            if (!rs.next()) {
-                throw new SQLException("Failed to insert user - no data returned");
+            try (ResultSet rs = executeQuery("insertUser", ps)) {
+                if (!rs.next()) {
+                    throw new SQLException("Failed to insert user - no data returned");
+                }
+
+                User insertedUser = mapResultSetToUser(rs);
+                recordInserted(insertedUser);
+                ServerEvents.publishUsersChanged();
+
+                return insertedUser;
+            }
+        }
+    }
+
+    /**
+     * Inserts a batch of new users in a single transaction, skipping any row whose username
+     * or email already exists. On PostgreSQL the batch is streamed with COPY into a temporary
+     * staging table and moved across with one INSERT ... SELECT; other connections fall back
+     * to a single multi-row INSERT. Each inserted user gets its user.registered outbox event in
+     * the same statement, as a single registration does.
+     *
+     * @return the users that were inserted, with their generated ids, in batch order
+     */
+    public List<User> insertUsers(List<User> users) throws SQLException {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+
+        try (Connection conn = dbc.getConnection()) {
+            conn.setAutoCommit(false);
+            List<User> insertedUsers = conn.isWrapperFor(PGConnection.class)
+                    ? copyInsertUsers(conn, users)
+                    : batchInsertUsers(conn, users);
+            conn.commit();
+            insertedUsers.forEach(UserDAO::recordInserted);
+            if (!insertedUsers.isEmpty()) {
+                ServerEvents.publishUsersChanged();
             }
 
-            return mapResultSetToUser(rs);
+            return insertedUsers;
         }
     }
 
     public boolean updateUsername(int userId, String username) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement(
-                    "UPDATE users SET username = ? WHERE id = ?"
-            );
+        try (Connection conn = dbc.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     withOutboxEvent("UPDATE users SET username = ? FROM users old "
+                             + "WHERE users.id = old.id AND users.id = ? "
+                             + "RETURNING users.id, users.username, users.email, old.username AS old_username")
+             )) {
             ps.setString(1, username);
             ps.setInt(2, userId);
+            ps.setString(3, OutboxEvent.USERNAME_CHANGED);
+            UserVersions.recordChange(userId);
+
+            try (ResultSet rs = executeQuery("updateUsername", ps)) {
+                boolean updated = rs.next();
+                UserVersions.recordChange(userId);
+                if (updated) {
+                    DBConnectionManager.recordWrite(userId, rs.getString("username"), rs.getString("email"),
+                            rs.getString("old_username"));
+                    AvailabilityIndex.recordUsername(username);
+                    UserSearchIndex.recordUsername(userId, username);
+                    ServerEvents.publishUsersChanged();
+                    ServerEvents.publishProfileChanged(userId);
+                }
 
-            return ps.executeUpdate() > 0;
+                return updated;
+            }
         }
     }
 
     public boolean updatePassword(int userId, String password) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement(
-                    "UPDATE users SET password = ? WHERE id = ?"
-            );
+        try (Connection conn = dbc.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     withOutboxEvent("UPDATE users SET password = ? WHERE id = ? RETURNING id, username, email")
+             )) {
             ps.setString(1, password);
             ps.setInt(2, userId);
+            ps.setString(3, OutboxEvent.PASSWORD_CHANGED);
+            UserVersions.recordChange(userId);
+
+            try (ResultSet rs = executeQuery("updatePassword", ps)) {
+                boolean updated = rs.next();
+                UserVersions.recordChange(userId);
+                if (updated) {
+                    DBConnectionManager.recordWrite(userId, rs.getString("username"), rs.getString("email"));
+                }
 
-            return ps.executeUpdate() > 0;
+                return updated;
+            }
         }
     }
 
     public boolean updateEmail(int userId, String email) throws SQLException {
-        try (Connection conn = dbc.getConnection()) {
-            PreparedStatement ps = conn.prepareStatement(
-                    "UPDATE users SET email = ? WHERE id = ?"
-            );
+        try (Connection conn = dbc.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     withOutboxEvent("UPDATE users SET email = ? FROM users old "
+                             + "WHERE users.id = old.id AND users.id = ? "
+                             + "RETURNING users.id, users.username, users.email, old.email AS old_email")
+             )) {
             ps.setString(1, email);
             ps.setInt(2, userId);
+            ps.setString(3, OutboxEvent.EMAIL_CHANGED);
+            UserVersions.recordChange(userId);
+
+            try (ResultSet rs = executeQuery("updateEmail", ps)) {
+                boolean updated = rs.next();
+                UserVersions.recordChange(userId);
+                if (updated) {
+                    DBConnectionManager.recordWrite(userId, rs.getString("username"), rs.getString("email"),
+                            rs.getString("old_email"));
+                    AvailabilityIndex.recordEmail(email);
+                    UserSearchIndex.recordEmail(userId, email);
+                    ServerEvents.publishUsersChanged();
+                    ServerEvents.publishProfileChanged(userId);
+                }
+
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Adds buffered logins to each user's login count and moves last_login_at forward.
+     * Users deleted since they logged in are skipped. Not a profile change, so no version,
+     * event or read-your-writes bookkeeping is done.
+     */
+    public void recordLoginActivity(List<ActivityTracker.LoginActivity> activities) throws SQLException {
+        try (Connection conn = dbc.getConnection()) {
+            Integer[] ids = new Integer[activities.size()];
+            Integer[] loginCounts = new Integer[activities.size()];
+            Timestamp[] lastLogins = new Timestamp[activities.size()];
 
-            return ps.executeUpdate() > 0;
+            for (int i = 0; i < activities.size(); i++) {
+                ActivityTracker.LoginActivity activity = activities.get(i);
+                ids[i] = activity.userId();
+                loginCounts[i] = activity.loginCount();
+                lastLogins[i] = new Timestamp(activity.lastLoginMillis());
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE users SET login_count = users.login_count + a.login_count, "
+                            + "last_login_at = GREATEST(users.last_login_at, a.last_login_at) "
+                            + "FROM unnest(?, ?, ?) AS a(id, login_count, last_login_at) WHERE users.id = a.id")) {
+                ps.setArray(1, conn.createArrayOf("integer", ids));
+                ps.setArray(2, conn.createArrayOf("integer", loginCounts));
+                ps.setArray(3, conn.createArrayOf("timestamptz", lastLogins));
+                executeUpdate("recordLoginActivity", ps);
+            }
         }
     }
 
-    private User mapResultSetToUser(ResultSet rs) throws SQLException {
+    private List<User> copyInsertUsers(Connection conn, List<User> users) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            // Session-scoped, so each pooled connection creates it once and reuses it afterwards
+            statement.execute("CREATE TEMP TABLE IF NOT EXISTS user_import_staging ("
+                    + "row_index INT, username VARCHAR(25), email VARCHAR(255), password VARCHAR(255)"
+                    + ") ON COMMIT DELETE ROWS");
+        }
+
+        StringBuilder csv = new StringBuilder(users.size() * 128);
+
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            csv.append(i).append(',')
+                    .append(quoteCsv(user.getUsername())).append(',')
+                    .append(quoteCsv(user.getEmail())).append(',')
+                    .append(quoteCsv(user.getPasswordHash())).append('\n');
+        }
+
+        try {
+            conn.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY user_import_staging (row_index, username, email, password) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new SQLException("Failed to copy users into staging table", e);
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(withOutboxEvent(
+                "INSERT INTO users (username, email, password) "
+                        + "SELECT username, email, password FROM user_import_staging ORDER BY row_index "
+                        + "ON CONFLICT DO NOTHING RETURNING *"))) {
+            ps.setString(1, OutboxEvent.USER_REGISTERED);
+
+            try (ResultSet rs = executeQuery("copyInsertUsers", ps)) {
+                return mapResultSetToUsers(rs);
+            }
+        }
+    }
+
+    // Parameter count stays well under the driver's 65535 limit for any sensible batch size
+    private List<User> batchInsertUsers(Connection conn, List<User> users) throws SQLException {
+        String values = String.join(", ", Collections.nCopies(users.size(), "(?, ?, ?)"));
+
+        try (PreparedStatement ps = conn.prepareStatement(withOutboxEvent(
+                "INSERT INTO users (username, email, password) VALUES " + values
+                        + " ON CONFLICT DO NOTHING RETURNING *"))) {
+            int parameterIndex = 1;
+
+            for (User user : users) {
+                ps.setString(parameterIndex++, user.getUsername());
+                ps.setString(parameterIndex++, user.getEmail());
+                ps.setString(parameterIndex++, user.getPasswordHash());
+            }
+            ps.setString(parameterIndex, OutboxEvent.USER_REGISTERED);
+
+            try (ResultSet rs = executeQuery("batchInsertUsers", ps)) {
+                return mapResultSetToUsers(rs);
+            }
+        }
+    }
+
+    private List<User> mapResultSetToUsers(ResultSet rs) throws SQLException {
+        List<User> users = new ArrayList<>();
+
+        while (rs.next()) {
+            users.add(mapResultSetToUser(rs));
+        }
+
+        return users;
+    }
+
+    /**
+     * Reads the oldest unpublished outbox events, passes them to the handler and deletes them,
+     * all in one transaction. If the handler throws, the events stay for the next attempt.
+     * Rows locked by another relay are skipped rather than waited for.
+     *
+     * @return the number of events relayed, 0 when the outbox is empty
+     */
+    public int relayOutboxEvents(int limit, OutboxBatchHandler handler) throws SQLException, IOException {
+        try (Connection conn = dbc.getConnection()) {
+            conn.setAutoCommit(false);
+            List<OutboxEvent> events = new ArrayList<>();
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT id, event_type, user_id, payload, created_at FROM user_events "
+                            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED")) {
+                ps.setInt(1, limit);
+
+                try (ResultSet rs = executeQuery("selectOutboxEvents", ps)) {
+                    while (rs.next()) {
+                        events.add(new OutboxEvent(rs.getLong("id"), rs.getString("event_type"), rs.getInt("user_id"),
+                                rs.getString("payload"), rs.getTimestamp("created_at").toInstant()));
+                    }
+                }
+            }
+
+            if (!events.isEmpty()) {
+                handler.accept(events);
+
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM user_events WHERE id = ANY(?)")) {
+                    ps.setArray(1, conn.createArrayOf("bigint", events.stream().map(OutboxEvent::id).toArray()));
+                    executeUpdate("deleteOutboxEvents", ps);
+                }
+            }
+
+            conn.commit();
+            return events.size();
+        }
+    }
+
+    public static List<UserLookupBatcher<?>> getLookupBatchers() {
+        return List.of(usersById, usersByIdOnPrimary, usersByUsername, usersByUsernameOnPrimary);
+    }
+
+    // Appends an outbox event for each row the write returns, in the same statement so the event
+    // commits exactly when the write does. The write must return id, username and email, and the
+    // event type is bound as the parameter after the write's own.
+    private static String withOutboxEvent(String writeSql) {
+        return "WITH written AS (" + writeSql + "), outbox AS ("
+                + "INSERT INTO user_events (event_type, user_id, payload) "
+                + "SELECT ?, id, json_build_object('id', id, 'username', username, 'email', email)::text FROM written"
+                + ") SELECT * FROM written";
+    }
+
+    // Every statement goes through these two so it shows up as a DatabaseQuery flight recorder event
+    private static ResultSet executeQuery(String queryName, PreparedStatement ps) throws SQLException {
+        FlightEvents.DatabaseQuery event = new FlightEvents.DatabaseQuery();
+        event.begin();
+
+        try {
+            return ps.executeQuery();
+        } finally {
+            commitDatabaseQuery(event, queryName);
+        }
+    }
+
+    private static int executeUpdate(String queryName, PreparedStatement ps) throws SQLException {
+        FlightEvents.DatabaseQuery event = new FlightEvents.DatabaseQuery();
+        event.begin();
+
+        try {
+            return ps.executeUpdate();
+        } finally {
+            commitDatabaseQuery(event, queryName);
+        }
+    }
+
+    private static void commitDatabaseQuery(FlightEvents.DatabaseQuery event, String queryName) {
+        if (event.shouldCommit()) {
+            event.queryName = queryName;
+            event.virtualThread = Thread.currentThread().isVirtual();
+            event.commit();
+        }
+    }
+
+    private static Connection getReadConnection(boolean requiresPrimary) throws SQLException {
+        return requiresPrimary ? dbc.getConnection() : dbc.getReplicaConnection();
+    }
+
+    private static User loadUserByEmail(String email, boolean fromPrimary) throws SQLException {
+        try (Connection conn = getReadConnection(fromPrimary);
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE email = ?")) {
+            ps.setString(1, email);
+
+            try (ResultSet rs = executeQuery("getUserByEmail", ps)) {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                return mapResultSetToUser(rs);
+            }
+        }
+    }
+
+    private static Map<Integer, User> loadUsersById(List<Integer> ids, boolean fromPrimary) throws SQLException {
+        try (Connection conn = getReadConnection(fromPrimary);
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE id = ANY(?)")) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            Map<Integer, User> users = new HashMap<>();
+
+            try (ResultSet rs = executeQuery("loadUsersById", ps)) {
+                while (rs.next()) {
+                    User user = mapResultSetToUser(rs);
+                    users.put(user.getId(), user);
+                }
+            }
+
+            return users;
+        }
+    }
+
+    private static Map<String, User> loadUsersByUsername(List<String> usernames, boolean fromPrimary)
+            throws SQLException {
+        try (Connection conn = getReadConnection(fromPrimary);
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE username = ANY(?)")) {
+            ps.setArray(1, conn.createArrayOf("varchar", usernames.toArray()));
+            Map<String, User> users = new HashMap<>();
+
+            try (ResultSet rs = executeQuery("loadUsersByUsername", ps)) {
+                while (rs.next()) {
+                    User user = mapResultSetToUser(rs);
+                    users.put(user.getUsername(), user);
+                }
+            }
+
+            return users;
+        }
+    }
+
+    private static void recordInserted(User user) {
+        DBConnectionManager.recordWrite(user.getId(), user.getUsername(), user.getEmail());
+        AvailabilityIndex.recordUsername(user.getUsername());
+        AvailabilityIndex.recordEmail(user.getEmail());
+        UserSearchIndex.recordUser(user);
+    }
+
+    private static String quoteCsv(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static User mapResultSetToUser(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         String username = rs.getString("username");
         String email = rs.getString("email");
@@ -151,4 +583,14 @@ public class UserDAO {
 
         return new User(id, username, email, password);
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    public interface UserRowHandler {
+        void accept(User user) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface OutboxBatchHandler {
+        void accept(List<OutboxEvent> events) throws IOException;
+    }
+}
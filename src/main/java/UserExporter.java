@@ -0,0 +1,197 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the full user table (id, username, email) as JSONL or CSV for downstream systems.
+ * Rows flow from a server-side database cursor straight to the output, so memory use stays
+ * constant however many users there are.
+ * <p>
+ * Responsibilities:
+ * - Read users through UserDAO.streamAllUsers with a fixed fetch size
+ * - Serialize each row as a JSON line or a CSV record (with a header row)
+ * - Optionally gzip the output
+ * - Serve the HTTP export route and a command-line export to a file or stdout
+ * <p>
+ * Over HTTP the body is sent with chunked transfer-encoding while rows are read; a database
+ * failure part-way through ends the response without its final chunk. The client sets the pace
+ * while a connection and cursor stay open, so HTTP exports are capped at EXPORT_MAX_CONCURRENT
+ * and cut off after EXPORT_TIMEOUT_SECONDS.
+ * <p>
+ * Command-line usage: {@code UserExporter <jsonl|csv> <output-file|-> [--gzip]}.
+ * Output files ending in .gz are gzipped automatically.
+ *
+ * @see UserDAO
+ * @see UserRequestHandler
+ * @see ChunkedOutputStream
+ */
+public class UserExporter {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final ServerConfig.ExportSettings settings = ServerConfig.get().userExport();
+    private static final Semaphore clientExports = new Semaphore(settings.maxConcurrent());
+
+    private final UserDAO userDAO = new UserDAO();
+    private final Format format;
+    private final boolean gzip;
+
+    public enum Format {
+        JSONL("jsonl", "application/x-ndjson"),
+        CSV("csv", "text/csv");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        /**
+         * @return the format with the given name (case-insensitive), or null if unsupported
+         */
+        public static Format fromName(String name) {
+            if (name == null) {
+                return null;
+            }
+
+            for (Format format : values()) {
+                if (format.extension.equals(name.toLowerCase(Locale.ROOT))) {
+                    return format;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    public UserExporter(Format format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    public String getContentType() {
+        return gzip ? "application/gzip" : format.contentType;
+    }
+
+    public String getFileName() {
+        return "users." + format.extension + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * Checked before starting an HTTP export; exportToClient() still enforces the cap.
+     */
+    public static boolean isAcceptingExports() {
+        return clientExports.availablePermits() > 0;
+    }
+
+    /**
+     * Writes the export to the given stream. The stream is flushed, but not closed.
+     */
+    public void exportTo(OutputStream outputStream) throws IOException {
+        exportTo(outputStream, 0);
+    }
+
+    /**
+     * Writes the export for an HTTP client, within the concurrency cap and the export timeout.
+     */
+    public void exportToClient(OutputStream outputStream) throws IOException {
+        if (!clientExports.tryAcquire()) {
+            throw new IOException("Too many concurrent user exports");
+        }
+
+        try {
+            exportTo(outputStream, System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.timeoutSeconds()));
+        } finally {
+            clientExports.release();
+        }
+    }
+
+    // A deadline of 0 means none; otherwise it is checked per row so a slow client can't hold the cursor open
+    private void exportTo(OutputStream outputStream, long deadlineNanos) throws IOException {
+        GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, WRITE_BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                gzipStream != null ? gzipStream : outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+
+        if (format == Format.CSV) {
+            writer.write("id,username,email\n");
+        }
+
+        try {
+            userDAO.streamAllUsers(user -> {
+                if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0) {
+                    throw new IOException("User export exceeded " + settings.timeoutSeconds() + " seconds");
+                }
+                writeRow(writer, user);
+            });
+        } catch (SQLException e) {
+            throw new IOException("User export failed: " + e.getMessage(), e);
+        }
+
+        writer.flush();
+
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+
+        outputStream.flush();
+    }
+
+    private void writeRow(Writer writer, User user) throws IOException {
+        if (format == Format.JSONL) {
+            writer.write(user.toJson());
+        } else {
+            writer.write(String.valueOf(user.getId()));
+            writer.write(',');
+            writer.write(quoteCsv(user.getUsername()));
+            writer.write(',');
+            writer.write(quoteCsv(user.getEmail()));
+        }
+
+        writer.write('\n');
+    }
+
+    private static String quoteCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    public static void main(String[] args) throws IOException {
+        Format format = args.length >= 2 ? Format.fromName(args[0]) : null;
+
+        if (format == null) {
+            System.err.println("Usage: UserExporter <jsonl|csv> <output-file|-> [--gzip]");
+            System.exit(2);
+        }
+
+        String output = args[1];
+        boolean gzip = output.endsWith(".gz") || (args.length > 2 && args[2].equals("--gzip"));
+        UserExporter exporter = new UserExporter(format, gzip);
+
+        try {
+            if (output.equals("-")) {
+                exporter.exportTo(System.out);
+            } else {
+                try (OutputStream fileStream = new BufferedOutputStream(
+                        Files.newOutputStream(Path.of(output)), WRITE_BUFFER_SIZE)) {
+                    exporter.exportTo(fileStream);
+                }
+            }
+        } finally {
+            DBConnectionManager.shutdown();
+        }
+    }
+}
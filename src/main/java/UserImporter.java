@@ -0,0 +1,369 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk-imports users from a streamed JSONL or CSV request body.
+ * Built for onboarding large tenants, where registering accounts one at a time costs a
+ * bcrypt hash and several database round trips per user.
+ * <p>
+ * Responsibilities:
+ * - Read rows from the body one line at a time, never buffering the whole upload
+ * - Validate each row with UserValidationUtil and reject duplicates within the upload
+ * - Hash a batch of passwords in parallel on a dedicated platform thread pool
+ * - Write each batch in one transaction through UserDAO.insertUsers
+ * - Record per-row errors in an ImportReport without aborting the rest of the job
+ * <p>
+ * Batches are pipelined: while one batch is hashing, the previous one is written and the
+ * next one is read, so the hashing threads stay busy. Rows that clash with existing accounts
+ * are skipped by the database and reported as user_already_exists. Batches already written
+ * stay committed if a later batch fails.
+ * <p>
+ * CSV input may start with a header row naming the username, email and password columns;
+ * without one, columns are read in that order.
+ *
+ * @see UserDAO
+ * @see UserValidationUtil
+ * @see UserRequestHandler
+ */
+public class UserImporter {
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final List<String> REQUIRED_FIELDS = List.of("username", "email", "password");
+    private static final ServerConfig.ImportSettings settings = ServerConfig.get().userImport();
+    private static final ExecutorService hashingPool = Executors.newFixedThreadPool(settings.hashThreads(),
+            Thread.ofPlatform().name("import-hash-", 0).daemon().factory());
+
+    private final UserDAO userDAO = new UserDAO();
+    private final Set<String> seenUsernames = new HashSet<>();
+    private final Set<String> seenEmails = new HashSet<>();
+    private Map<String, Integer> csvColumns;
+
+    public enum Format {
+        JSONL,
+        CSV;
+
+        /**
+         * @return the format for the request's Content-Type, or null if it is not supported
+         */
+        public static Format fromContentType(String contentType) {
+            if (contentType == null) {
+                return null;
+            }
+
+            String mediaType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+
+            return switch (mediaType) {
+                case "application/x-ndjson", "application/jsonl", "application/x-jsonlines" -> JSONL;
+                case "text/csv" -> CSV;
+                default -> null;
+            };
+        }
+    }
+
+    public void importUsers(InputStream body, Format format, ImportReport report)
+            throws IOException, SQLException {
+        LineReader reader = new LineReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        List<PendingRow> rows = new ArrayList<>(settings.batchSize());
+        HashingBatch pendingBatch = null;
+
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int lineNumber = reader.getLineNumber();
+
+                if (reader.wasTruncated()) {
+                    report.addError(lineNumber, "invalid_input", "Line exceeds " + MAX_LINE_LENGTH + " characters");
+                    continue;
+                }
+
+                if (line.isBlank() || (format == Format.CSV && readCsvHeader(line))) {
+                    continue;
+                }
+
+                PendingRow row = parseRow(line, lineNumber, format, report);
+
+                if (row == null) {
+                    continue;
+                }
+
+                rows.add(row);
+
+                if (rows.size() >= settings.batchSize()) {
+                    HashingBatch nextBatch = startHashing(rows);
+                    rows = new ArrayList<>(settings.batchSize());
+                    writeBatch(pendingBatch, report);
+                    pendingBatch = nextBatch;
+                }
+            }
+
+            HashingBatch lastBatch = rows.isEmpty() ? null : startHashing(rows);
+            writeBatch(pendingBatch, report);
+            pendingBatch = lastBatch;
+            writeBatch(pendingBatch, report);
+            pendingBatch = null;
+        } finally {
+            if (pendingBatch != null) {
+                pendingBatch.cancel();
+            }
+        }
+    }
+
+    private boolean readCsvHeader(String line) {
+        if (csvColumns != null) {
+            return false;
+        }
+
+        List<String> fields = parseCsvLine(line);
+        csvColumns = new HashMap<>();
+
+        if (fields.stream().map(field -> field.trim().toLowerCase(Locale.ROOT)).anyMatch(REQUIRED_FIELDS::contains)) {
+            for (int i = 0; i < fields.size(); i++) {
+                csvColumns.putIfAbsent(fields.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            return true;
+        }
+
+        for (int i = 0; i < REQUIRED_FIELDS.size(); i++) {
+            csvColumns.put(REQUIRED_FIELDS.get(i), i);
+        }
+        return false;
+    }
+
+    private PendingRow parseRow(String line, int lineNumber, Format format, ImportReport report) {
+        try {
+            Map<String, String> fields = format == Format.JSONL
+                    ? JsonUtil.parseJsonWithRequiredFields(line, REQUIRED_FIELDS)
+                    : mapCsvFields(parseCsvLine(line));
+
+            String username = UserValidationUtil.validateUsername(fields.get("username"));
+            String email = UserValidationUtil.validateEmail(fields.get("email"));
+            String password = UserValidationUtil.validatePassword(fields.get("password"));
+
+            if (seenUsernames.contains(username) || seenEmails.contains(email)) {
+                report.addError(lineNumber, "duplicate_row", "Username or email appears earlier in this import");
+                return null;
+            }
+
+            seenUsernames.add(username);
+            seenEmails.add(email);
+
+            return new PendingRow(lineNumber, username, email, password);
+        } catch (JsonUtil.MissingRequiredFieldException | ValidationException e) {
+            report.addError(lineNumber, "invalid_input", e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, String> mapCsvFields(List<String> values) throws JsonUtil.MissingRequiredFieldException {
+        Map<String, String> fields = new HashMap<>();
+
+        for (String requiredField : REQUIRED_FIELDS) {
+            Integer column = csvColumns.get(requiredField);
+            String value = column != null && column < values.size() ? values.get(column).trim() : "";
+
+            if (value.isEmpty()) {
+                throw new JsonUtil.MissingRequiredFieldException("Required field not found: " + requiredField);
+            }
+
+            fields.put(requiredField, value);
+        }
+
+        return fields;
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private HashingBatch startHashing(List<PendingRow> rows) {
+        List<Future<User>> hashedUsers = new ArrayList<>(rows.size());
+
+        for (PendingRow row : rows) {
+            hashedUsers.add(hashingPool.submit(() -> new User(row.username(), row.email(), row.password())));
+        }
+
+        return new HashingBatch(rows, hashedUsers);
+    }
+
+    private void writeBatch(HashingBatch batch, ImportReport report) throws IOException, SQLException {
+        if (batch == null) {
+            return;
+        }
+
+        List<User> users = batch.awaitUsers();
+        Set<String> insertedUsernames = new HashSet<>();
+
+        for (User insertedUser : userDAO.insertUsers(users)) {
+            insertedUsernames.add(insertedUser.getUsername());
+        }
+
+        for (PendingRow row : batch.rows()) {
+            if (insertedUsernames.contains(row.username())) {
+                report.recordImported();
+            } else {
+                report.addError(row.lineNumber(), "user_already_exists", "Username or email already exists");
+            }
+        }
+    }
+
+    private record PendingRow(int lineNumber, String username, String email, String password) {
+    }
+
+    private record HashingBatch(List<PendingRow> rows, List<Future<User>> hashedUsers) {
+        List<User> awaitUsers() throws IOException {
+            List<User> users = new ArrayList<>(hashedUsers.size());
+
+            try {
+                for (Future<User> hashedUser : hashedUsers) {
+                    users.add(hashedUser.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while hashing imported passwords");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to hash imported password", e.getCause());
+            }
+
+            return users;
+        }
+
+        void cancel() {
+            hashedUsers.forEach(hashedUser -> hashedUser.cancel(false));
+        }
+    }
+
+    // Bounded line reader so a single oversized line cannot exhaust the heap
+    private static class LineReader {
+        private final BufferedReader reader;
+        private final StringBuilder line = new StringBuilder();
+        private int lineNumber;
+        private boolean truncated;
+
+        LineReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        String readLine() throws IOException {
+            line.setLength(0);
+            truncated = false;
+            int c;
+
+            while ((c = reader.read()) != -1 && c != '\n') {
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append((char) c);
+                } else {
+                    truncated = true;
+                }
+            }
+
+            if (c == -1 && line.isEmpty() && !truncated) {
+                return null;
+            }
+
+            lineNumber++;
+
+            if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+
+            return line.toString();
+        }
+
+        int getLineNumber() {
+            return lineNumber;
+        }
+
+        boolean wasTruncated() {
+            return truncated;
+        }
+    }
+
+    /**
+     * Outcome of a single import, returned to the caller as JSON.
+     * Only the first MAX_REPORTED_ERRORS row errors are listed; the failed count covers all of them.
+     */
+    public static class ImportReport {
+        private static final int MAX_REPORTED_ERRORS = 1000;
+
+        private final List<String> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+        private String abortReason;
+
+        public void recordImported() {
+            imported++;
+        }
+
+        public void addError(int lineNumber, String error, String message) {
+            failed++;
+
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(String.format("{\"line\": %d, \"error\": \"%s\", \"message\": \"%s\"}",
+                        lineNumber, error, JsonUtil.escapeJson(message)));
+            }
+        }
+
+        public void abort(String reason) {
+            abortReason = reason;
+        }
+
+        public String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{");
+            sb.append("\"completed\": ").append(abortReason == null).append(", ");
+            if (abortReason != null) {
+                sb.append("\"abortReason\": \"").append(JsonUtil.escapeJson(abortReason)).append("\", ");
+            }
+            sb.append("\"imported\": ").append(imported).append(", ");
+            sb.append("\"failed\": ").append(failed).append(", ");
+            sb.append("\"errorsTruncated\": ").append(failed > errors.size()).append(", ");
+            sb.append("\"errors\": [").append(String.join(", ", errors)).append("]");
+            sb.append("}");
+
+            return sb.toString();
+        }
+    }
+}
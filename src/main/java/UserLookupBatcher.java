@@ -0,0 +1,208 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces concurrent single-user lookups into one batched query (a "data loader").
+ * Many request threads looking up different users at the same moment share one connection
+ * and one round trip instead of taking one each.
+ * <p>
+ * Responsibilities:
+ * - Collect lookups into a batch; the first caller of a batch (the leader) runs its query
+ * - Dispatch as soon as the batch reaches maxBatchSize or the collection window closes
+ * - Deduplicate identical keys waiting in the same batch (single-flight)
+ * - Hand each caller its own User copy, since User objects are mutable
+ * - Count lookups, batches, batch sizes and coalesced keys
+ * <p>
+ * The leader only waits out the window while another batch query is already running;
+ * on an idle server lookups go straight to the database and add no latency. Keys join a
+ * batch only until it is dispatched, so a lookup never receives a result read before it began.
+ *
+ * @param <K> lookup key type (user id or username)
+ * @see UserDAO
+ * @see ServerConfig
+ */
+public class UserLookupBatcher<K> {
+    private final String name;
+    private final BatchLoader<K> loader;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, CompletableFuture<User>> waitingLookups = new HashMap<>(); // guarded by lock
+    private Batch<K> collecting; // guarded by lock
+    private final AtomicInteger runningQueries = new AtomicInteger();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder coalescedLookups = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedKeys = new LongAdder();
+    private final AtomicLong largestBatch = new AtomicLong();
+
+    public UserLookupBatcher(String name, ServerConfig.LookupBatchSettings settings, BatchLoader<K> loader) {
+        this.name = name;
+        this.loader = loader;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(settings.windowMicros());
+        this.maxBatchSize = Math.max(1, settings.maxBatchSize());
+    }
+
+    /**
+     * @return a copy of the user with the given key, or null if there is none
+     */
+    public User get(K key) throws SQLException {
+        lookups.increment();
+        CompletableFuture<User> result;
+        Batch<K> ledBatch = null;
+
+        lock.lock();
+        try {
+            result = waitingLookups.get(key);
+
+            if (result != null) {
+                coalescedLookups.increment();
+            } else {
+                if (collecting == null) {
+                    collecting = new Batch<>(lock.newCondition());
+                    ledBatch = collecting;
+                }
+
+                result = new CompletableFuture<>();
+                waitingLookups.put(key, result);
+                collecting.lookups.put(key, result);
+
+                if (collecting.lookups.size() >= maxBatchSize) {
+                    Batch<K> full = collecting;
+                    detach(full);
+                    full.ready.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (ledBatch != null) {
+            runBatch(ledBatch);
+        }
+
+        return await(result);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedLookups.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long batchCount = batches.sum();
+        return batchCount == 0 ? 0 : (double) batchedKeys.sum() / batchCount;
+    }
+
+    public long getLargestBatchSize() {
+        return largestBatch.get();
+    }
+
+    private void runBatch(Batch<K> batch) {
+        lock.lock();
+        try {
+            // Only worth waiting for company when the database is already busy with another batch
+            if (windowNanos > 0 && runningQueries.get() > 0) {
+                long remainingNanos = windowNanos;
+
+                while (!batch.detached && remainingNanos > 0) {
+                    remainingNanos = batch.ready.awaitNanos(remainingNanos);
+                }
+            }
+
+            detach(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            detach(batch); // Still run the batch; other callers are waiting on it
+        } finally {
+            lock.unlock();
+        }
+
+        runningQueries.incrementAndGet();
+        try {
+            Map<K, User> users = loader.load(new ArrayList<>(batch.lookups.keySet()));
+            recordBatch(batch.lookups.size());
+            batch.lookups.forEach((key, result) -> result.complete(users.get(key)));
+        } catch (SQLException | RuntimeException e) {
+            batch.lookups.values().forEach(result -> result.completeExceptionally(e));
+        } finally {
+            runningQueries.decrementAndGet();
+        }
+    }
+
+    // Must hold lock
+    private void detach(Batch<K> batch) {
+        if (batch.detached) {
+            return;
+        }
+
+        batch.detached = true;
+        if (collecting == batch) {
+            collecting = null;
+        }
+        batch.lookups.keySet().forEach(waitingLookups::remove);
+    }
+
+    private void recordBatch(int size) {
+        batches.increment();
+        batchedKeys.add(size);
+        largestBatch.accumulateAndGet(size, Math::max);
+    }
+
+    private static User await(CompletableFuture<User> result) throws SQLException {
+        try {
+            User user = result.join();
+            return user != null
+                    ? new User(user.getId(), user.getUsername(), user.getEmail(), user.getPasswordHash())
+                    : null;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException cause) {
+                throw new SQLException(cause.getMessage(), cause.getSQLState(), cause);
+            }
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchLoader<K> {
+        /**
+         * @return the users found, keyed by lookup key; missing keys have no user
+         */
+        Map<K, User> load(List<K> keys) throws SQLException;
+    }
+
+    private static class Batch<K> {
+        private final Map<K, CompletableFuture<User>> lookups = new LinkedHashMap<>();
+        private final Condition ready;
+        private boolean detached;
+
+        Batch(Condition ready) {
+            this.ready = ready;
+        }
+    }
+}
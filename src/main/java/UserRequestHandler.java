@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
@@ -9,7 +12,11 @@ import java.util.Map;
  * <p>
  * Responsibilities:
  * - Coordinate with UserRouter for request routing and UserService for domain operations
- * - Validate user sessions and enforce authentication requirements
+ * - Enforce authentication requirements using the session resolved by the RequestContext
+ * - Rate limit password-hashing routes by client IP and username before any DAO access
+ * - Guard admin routes (bulk import and export) with the configured bearer token
+ * - Serve single-user reads with ETags, answering a matching If-None-Match with 304
+ * - Open Server-Sent Event streams for the current session
  * - Transform business exceptions into appropriate HTTP status codes and JSON error responses
  * - Handle request validation, field parsing, and JSON response formatting
  * - Manage user session lifecycle including creation, validation, and invalidation
@@ -17,25 +24,44 @@ import java.util.Map;
  * @see UserRouter
  * @see UserService
  * @see SessionManager
+ * @see RequestContext
  * @see JsonUtil
+ * @see RateLimiter
+ * @see UserImporter
+ * @see UserExporter
+ * @see UserVersions
+ * @see ServerEvents
  */
 public class UserRequestHandler {
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final ServerConfig.RateLimitSettings rateLimits = ServerConfig.get().rateLimits();
+    private static final RateLimiter clientRateLimiter = new RateLimiter(
+            rateLimits.clientBurst(), rateLimits.clientPerMinute(), rateLimits.maxKeys());
+    private static final RateLimiter usernameRateLimiter = new RateLimiter(
+            rateLimits.usernameBurst(), rateLimits.usernamePerMinute(), rateLimits.maxKeys());
+    private static final ServerConfig.AvailabilitySettings availabilitySettings = ServerConfig.get().availability();
+    private static final RateLimiter availabilityRateLimiter = new RateLimiter(
+            availabilitySettings.burst(), availabilitySettings.perMinute(), rateLimits.maxKeys());
+    private static final byte[] adminToken = ServerConfig.get().userImport().adminToken()
+            .getBytes(StandardCharsets.UTF_8);
+    private static final UserService userService = new UserService();
+    private final RequestContext context;
     private final HttpRequest request;
     private final HttpResponseBuilder responseBuilder;
-    private final UserService userService;
-    private SessionData activeSession;
+    private final SessionData activeSession;
 
-    public UserRequestHandler(HttpRequest request) {
-        this.request = request;
+    public UserRequestHandler(RequestContext context) {
+        this.context = context;
+        request = context.getRequest();
         responseBuilder = new HttpResponseBuilder();
-        userService = new UserService();
+        activeSession = context.getActiveSession();
     }
 
     public HttpResponse getResponse() {
-        boolean hasActiveSession = setupSessionIfCookie();
-        UserRoute route = new UserRouter().getRoute(request.getMethod(), request.getPath());
+        UserRoute route = context.getUserRoute();
 
-        if (route.requiresSession() && !hasActiveSession) {
+        if (route.requiresSession() && activeSession == null) {
             return getErrorResponse(401, "session_not_found");
         }
 
@@ -46,45 +72,133 @@ public class UserRequestHandler {
             case CHANGE_PASSWORD -> handleChangePassword();
             case CHANGE_EMAIL -> handleChangeEmail();
             case GET_ALL_USERS -> handleGetAllUsers();
+            case GET_USER -> handleGetUser(UserRouter.getUserId(request.getPath()));
+            case GET_CURRENT_USER -> handleGetUser(activeSession.userId());
+            case IMPORT_USERS -> handleImportUsers();
+            case EXPORT_USERS -> handleExportUsers();
+            case CHECK_AVAILABILITY -> handleCheckAvailability();
+            case SEARCH_USERS -> handleSearchUsers();
+            case SUBSCRIBE_TO_EVENTS -> handleSubscribeToEvents();
             default -> getErrorResponse(404, "path_not_found");
         };
     }
 
-    private boolean setupSessionIfCookie() {
-        String cookie = request.getHeader("Cookie");
+    private HttpResponse handleGetAllUsers() {
+        try {
+            return getSuccessfulResponse(200, toJsonArray(userService.getAllUsers()));
+        } catch (SQLException e) {
+            return getErrorResponse(500, "database_error");
+        }
+    }
+
+    // A cached version answers revalidation without a database read; otherwise the tag is
+    // taken before the read so a concurrent change can only make it stale, never too new.
+    // The read goes to the primary, since a lagging replica could return a row older than the tag
+    private HttpResponse handleGetUser(int userId) {
+        String cachedETag = UserVersions.getCachedETag(userId);
+
+        if (cachedETag != null && matchesIfNoneMatch(cachedETag)) {
+            return getNotModifiedResponse(cachedETag);
+        }
+
+        String eTag = UserVersions.getETag(userId);
+
+        try {
+            User user = userService.getUserByIdFromPrimary(userId);
+
+            if (user == null) {
+                UserVersions.recordDeletion(userId);
+                return getErrorResponse(404, "user_not_found");
+            }
+
+            if (matchesIfNoneMatch(eTag)) {
+                return getNotModifiedResponse(eTag);
+            }
+
+            responseBuilder.header("ETag", eTag)
+                    .header("Cache-Control", "private, no-cache");
+            return getSuccessfulResponse(200, user.toJson());
+        } catch (SQLException e) {
+            return getErrorResponse(500, "database_error");
+        }
+    }
 
-        if (cookie != null) {
-            activeSession = SessionManager.getActiveSession(cookie);
+    private boolean matchesIfNoneMatch(String eTag) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+
+        if (ifNoneMatch == null) {
+            return false;
         }
 
-        return activeSession != null;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2); // If-None-Match uses weak comparison
+            }
+
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
-    private HttpResponse handleGetAllUsers() {
+    private HttpResponse handleSearchUsers() {
+        String query = request.getQueryParameter("q");
+        String limitParameter = request.getQueryParameter("limit");
+
+        if (query == null || query.isBlank()) {
+            return getErrorResponse(400, "invalid_input");
+        }
+
         try {
-            List<User> users = userService.getAllUsers();
-            StringBuilder sb = new StringBuilder();
-
-            sb.append("[");
-            if (!users.isEmpty()) {
-                for (User user : users) {
-                    String userJson = user.toJson();
-                    sb.append(userJson).append(",");
-                }
-                sb.deleteCharAt(sb.length() - 1);
+            int limit = limitParameter != null ? Integer.parseInt(limitParameter) : DEFAULT_SEARCH_LIMIT;
+
+            if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+                return getErrorResponse(400, "invalid_input");
             }
-            sb.append("]");
 
-            return getSuccessfulResponse(200, sb.toString());
+            return getSuccessfulResponse(200, toJsonArray(userService.searchUsers(query, limit)));
+        } catch (NumberFormatException e) {
+            return getErrorResponse(400, "invalid_input");
         } catch (SQLException e) {
             return getErrorResponse(500, "database_error");
         }
     }
 
+    private static String toJsonArray(List<User> users) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("[");
+        if (!users.isEmpty()) {
+            for (User user : users) {
+                String userJson = user.toJson();
+                sb.append(userJson).append(",");
+            }
+            sb.deleteCharAt(sb.length() - 1);
+        }
+        sb.append("]");
+
+        return sb.toString();
+    }
+
     private HttpResponse handleAuthenticateUser() {
+        long retryAfterSeconds = clientRateLimiter.tryAcquire(request.getRemoteAddress());
+
+        if (retryAfterSeconds > 0) {
+            return getRateLimitedResponse(retryAfterSeconds);
+        }
+
         try {
             Map<String, String> requestFields = JsonUtil.parseJsonWithRequiredFields(
                     request.getBody(), List.of("username", "password"));
+            retryAfterSeconds = usernameRateLimiter.tryAcquire(requestFields.get("username"));
+
+            if (retryAfterSeconds > 0) {
+                return getRateLimitedResponse(retryAfterSeconds);
+            }
 
             User authenticatedUser = userService.authenticateUser(
                     requestFields.get("username"),
@@ -102,6 +216,44 @@ public class UserRequestHandler {
         }
     }
 
+    // Called per keystroke from the register form, so it has its own, more generous rate limit
+    private HttpResponse handleCheckAvailability() {
+        long retryAfterSeconds = availabilityRateLimiter.tryAcquire(request.getRemoteAddress());
+
+        if (retryAfterSeconds > 0) {
+            return getRateLimitedResponse(retryAfterSeconds);
+        }
+
+        String username = request.getQueryParameter("username");
+        String email = request.getQueryParameter("email");
+
+        if (username == null && email == null) {
+            return getErrorResponse(400, "invalid_input");
+        }
+
+        try {
+            StringBuilder sb = new StringBuilder("{");
+
+            if (username != null) {
+                boolean available = userService.isUsernameAvailable(UserValidationUtil.validateUsername(username));
+                sb.append("\"usernameAvailable\": ").append(available);
+            }
+
+            if (email != null) {
+                boolean available = userService.isEmailAvailable(UserValidationUtil.validateEmail(email));
+                sb.append(username != null ? ", " : "").append("\"emailAvailable\": ").append(available);
+            }
+            sb.append("}");
+
+            responseBuilder.header("Cache-Control", "no-store");
+            return getSuccessfulResponse(200, sb.toString());
+        } catch (ValidationException e) {
+            return getErrorResponse(400, "invalid_input");
+        } catch (SQLException e) {
+            return getErrorResponse(500, "database_error");
+        }
+    }
+
     private HttpResponse handleLogoutUser() {
         if (activeSession != null) {
             SessionManager.invalidateUserSessions(activeSession.userId());
@@ -111,6 +263,12 @@ public class UserRequestHandler {
     }
 
     private HttpResponse handleRegisterNewUser() {
+        long retryAfterSeconds = clientRateLimiter.tryAcquire(request.getRemoteAddress());
+
+        if (retryAfterSeconds > 0) {
+            return getRateLimitedResponse(retryAfterSeconds);
+        }
+
         try {
             Map<String, String> requestFields = JsonUtil.parseJsonWithRequiredFields(
                     request.getBody(), List.of("username", "email", "password"));
@@ -123,6 +281,8 @@ public class UserRequestHandler {
             setActiveSessionWithCookie(registeredUser.getId());
 
             return getSuccessfulResponse(201, registeredUser.toJson());
+        } catch (BreachedPasswordException e) {
+            return getErrorResponse(400, "password_breached");
         } catch (JsonUtil.MissingRequiredFieldException | ValidationException e) {
             return getErrorResponse(400, "invalid_input");
         } catch (UserService.UserAlreadyExistsException e) {
@@ -157,6 +317,8 @@ public class UserRequestHandler {
             setActiveSessionWithCookie(userId);
 
             return getSuccessfulResponse(200, updatedUser.toJson());
+        } catch (BreachedPasswordException e) {
+            return getErrorResponse(400, "password_breached");
         } catch (JsonUtil.MissingRequiredFieldException | ValidationException | NumberFormatException e) {
             return getErrorResponse(400, "invalid_input");
         } catch (UserService.UserAuthenticationException e) {
@@ -200,9 +362,91 @@ public class UserRequestHandler {
         }
     }
 
+    private HttpResponse handleImportUsers() {
+        if (!isAdminRequest()) {
+            return getErrorResponse(403, "admin_required");
+        }
+
+        UserImporter.Format format = UserImporter.Format.fromContentType(request.getHeader("Content-Type"));
+
+        if (format == null) {
+            return getErrorResponse(415, "unsupported_media_type");
+        }
+
+        UserImporter.ImportReport report = new UserImporter.ImportReport();
+
+        try {
+            new UserImporter().importUsers(request.getBodyStream(), format, report);
+            return getSuccessfulResponse(200, report.toJson());
+        } catch (IOException e) {
+            report.abort("Request body could not be read: " + e.getMessage());
+            return getImportReportResponse(400, report);
+        } catch (SQLException e) {
+            report.abort("Database error");
+            return getImportReportResponse(500, report);
+        }
+    }
+
+    // Rows are streamed from the database while the response is written, after this handler returns
+    private HttpResponse handleExportUsers() {
+        if (!isAdminRequest()) {
+            return getErrorResponse(403, "admin_required");
+        }
+
+        String formatName = request.getQueryParameter("format");
+        UserExporter.Format format = formatName != null
+                ? UserExporter.Format.fromName(formatName)
+                : UserExporter.Format.JSONL;
+
+        if (format == null) {
+            return getErrorResponse(400, "invalid_input");
+        }
+
+        if (!UserExporter.isAcceptingExports()) {
+            return getErrorResponse(503, "too_many_exports");
+        }
+
+        UserExporter exporter = new UserExporter(format, "true".equals(request.getQueryParameter("gzip")));
+
+        return responseBuilder.version("HTTP/1.1")
+                .status(200)
+                .header("Content-Type", exporter.getContentType())
+                .header("Content-Disposition", "attachment; filename=\"" + exporter.getFileName() + "\"")
+                .streamingBody(exporter::exportToClient)
+                .build();
+    }
+
+    // The stream outlives this handler: events are written on the connection thread after it returns
+    private HttpResponse handleSubscribeToEvents() {
+        if (!ServerEvents.isAcceptingSubscribers()) {
+            return getErrorResponse(503, "too_many_subscribers");
+        }
+
+        String sessionId = context.getSessionId();
+
+        return responseBuilder.version("HTTP/1.1")
+                .status(200)
+                .header("Content-Type", "text/event-stream")
+                .header("Cache-Control", "no-cache")
+                .streamingBody(ServerEvents.subscription(sessionId, activeSession.userId()))
+                .build();
+    }
+
+    // Constant-time comparison; admin routes stay disabled while no token is configured
+    private boolean isAdminRequest() {
+        String authorization = request.getHeader("Authorization");
+
+        if (adminToken.length == 0 || authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+
+        byte[] providedToken = authorization.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(adminToken, providedToken);
+    }
+
     private void setActiveSessionWithCookie(int userId) {
         String sessionId = SessionManager.setActiveSession(userId);
-        String cookieString = "sessionId=" + sessionId + "; Path=/; Max-Age=3600";
+        String cookieString = "sessionId=" + sessionId + "; Path=/; Max-Age=" + SessionManager.getSessionTtlSeconds();
         responseBuilder.header("Set-Cookie", cookieString);
     }
 
@@ -214,6 +458,28 @@ public class UserRequestHandler {
                 .build();
     }
 
+    // Partial imports still report what was committed before the failure
+    private HttpResponse getImportReportResponse(int statusCode, UserImporter.ImportReport report) {
+        return responseBuilder.version("HTTP/1.1")
+                .status(statusCode)
+                .header("Content-Type", "application/json")
+                .body(report.toJson())
+                .build();
+    }
+
+    private HttpResponse getNotModifiedResponse(String eTag) {
+        return responseBuilder.version("HTTP/1.1")
+                .status(304)
+                .header("ETag", eTag)
+                .header("Cache-Control", "private, no-cache")
+                .build();
+    }
+
+    private HttpResponse getRateLimitedResponse(long retryAfterSeconds) {
+        responseBuilder.header("Retry-After", String.valueOf(retryAfterSeconds));
+        return getErrorResponse(429, "too_many_requests");
+    }
+
     private HttpResponse getErrorResponse(int statusCode, String error) {
         String message;
 
@@ -223,8 +489,15 @@ public class UserRequestHandler {
             case "session_user_mismatch" -> message = "The provided user does not match the current session user";
             case "path_not_found" -> message = "The requested path was not found";
             case "user_already_exists" -> message = "User already exists";
+            case "user_not_found" -> message = "User not found";
             case "invalid_input" -> message = "Invalid input provided";
+            case "password_breached" -> message = "Password appears in a known data breach";
             case "database_error" -> message = "Database error";
+            case "too_many_requests" -> message = "Too many attempts - please try again later";
+            case "admin_required" -> message = "A valid admin token is required";
+            case "unsupported_media_type" -> message = "Expected text/csv or application/x-ndjson";
+            case "too_many_subscribers" -> message = "Too many open event streams - please try again later";
+            case "too_many_exports" -> message = "Too many exports in progress - please try again later";
             default -> message = "Unknown error";
         }
 
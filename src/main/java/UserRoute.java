@@ -5,27 +5,53 @@
  * Responsibilities:
  * - Define all available user management endpoints
  * - Specify session authentication requirements per route
+ * - Specify admission priority per route for load shedding
+ * - Mark routes that consume their request body as a stream rather than a byte array
  * - Provide metadata for consistent authorization handling
  *
  * @see UserRouter
  * @see UserRequestHandler
+ * @see RequestPriority
  */
 public enum UserRoute {
-    LOGIN(false),
-    LOGOUT(false),
-    REGISTER(false),
-    GET_ALL_USERS(true),
-    CHANGE_PASSWORD(true),
-    CHANGE_EMAIL(true),
-    NOT_FOUND(false);
+    LOGIN(false, RequestPriority.LOW),
+    LOGOUT(false, RequestPriority.HIGH),
+    REGISTER(false, RequestPriority.LOW),
+    GET_ALL_USERS(true, RequestPriority.HIGH),
+    GET_USER(true, RequestPriority.HIGH),
+    GET_CURRENT_USER(true, RequestPriority.HIGH),
+    CHANGE_PASSWORD(true, RequestPriority.NORMAL),
+    CHANGE_EMAIL(true, RequestPriority.NORMAL),
+    IMPORT_USERS(false, RequestPriority.LOW, true),
+    EXPORT_USERS(false, RequestPriority.LOW),
+    CHECK_AVAILABILITY(false, RequestPriority.NORMAL),
+    SEARCH_USERS(true, RequestPriority.NORMAL),
+    SUBSCRIBE_TO_EVENTS(true, RequestPriority.HIGH),
+    NOT_FOUND(false, RequestPriority.HIGH);
 
     private final boolean requiresSession;
+    private final RequestPriority priority;
+    private final boolean streamsBody;
 
-    UserRoute(boolean requiresSession) {
+    UserRoute(boolean requiresSession, RequestPriority priority) {
+        this(requiresSession, priority, false);
+    }
+
+    UserRoute(boolean requiresSession, RequestPriority priority, boolean streamsBody) {
         this.requiresSession = requiresSession;
+        this.priority = priority;
+        this.streamsBody = streamsBody;
     }
 
     public boolean requiresSession() {
         return requiresSession;
     }
+
+    public RequestPriority priority() {
+        return priority;
+    }
+
+    public boolean streamsBody() {
+        return streamsBody;
+    }
 }
\ No newline at end of file
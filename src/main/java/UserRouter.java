@@ -13,6 +13,13 @@
  * - POST /users -> Register new user
  * - POST /users/login -> Authenticate user
  * - POST /users/logout -> Logout current user
+ * - POST /users/import -> Bulk import users from JSONL or CSV (requires admin token)
+ * - GET /users/export -> Stream all users as JSONL or CSV (requires admin token)
+ * - GET /users/availability -> Check whether a username and/or email is free
+ * - GET /users/search -> Search users by username/email prefix or substring (requires session)
+ * - GET /users/events -> Stream session and user change events as Server-Sent Events (requires session)
+ * - GET /users/me -> Get the current session's user (requires session)
+ * - GET /users/{id} -> Get a single user (requires session)
  * - PATCH /users/{id}/password -> Change user password (requires session)
  * - PATCH /users/{id}/email -> Change user email (requires session)
  *
@@ -37,6 +44,20 @@ public class UserRouter {
             return UserRoute.LOGIN;
         } else if (segmentsLength == 3 && segments[2].equals("logout") && method.equals("POST")) {
             return UserRoute.LOGOUT;
+        } else if (segmentsLength == 3 && segments[2].equals("import") && method.equals("POST")) {
+            return UserRoute.IMPORT_USERS;
+        } else if (segmentsLength == 3 && segments[2].equals("export") && method.equals("GET")) {
+            return UserRoute.EXPORT_USERS;
+        } else if (segmentsLength == 3 && segments[2].equals("availability") && method.equals("GET")) {
+            return UserRoute.CHECK_AVAILABILITY;
+        } else if (segmentsLength == 3 && segments[2].equals("search") && method.equals("GET")) {
+            return UserRoute.SEARCH_USERS;
+        } else if (segmentsLength == 3 && segments[2].equals("events") && method.equals("GET")) {
+            return UserRoute.SUBSCRIBE_TO_EVENTS;
+        } else if (segmentsLength == 3 && segments[2].equals("me") && method.equals("GET")) {
+            return UserRoute.GET_CURRENT_USER;
+        } else if (segmentsLength == 3 && isUserId(segments[2]) && method.equals("GET")) {
+            return UserRoute.GET_USER;
         } else if (segmentsLength == 4 && segments[3].equals("password") && method.equals("PATCH")) {
             return UserRoute.CHANGE_PASSWORD;
         } else if (segmentsLength == 4 && segments[3].equals("email") && method.equals("PATCH")) {
@@ -45,4 +66,32 @@ public class UserRouter {
             return UserRoute.NOT_FOUND;
         }
     }
+
+    /**
+     * @return the user id in a /users/{id} path, or -1 if the path does not carry one
+     */
+    public static int getUserId(String pathString) {
+        String[] segments = pathString.split("/");
+
+        if (segments.length < 3 || !isUserId(segments[2])) {
+            return -1;
+        }
+
+        return Integer.parseInt(segments[2]);
+    }
+
+    private static boolean isUserId(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) {
+            return false;
+        }
+
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
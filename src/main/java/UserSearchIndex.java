@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory search index over usernames and emails for the user search endpoint.
+ * Replaces downloading the whole user table and filtering it in the browser.
+ * <p>
+ * Responsibilities:
+ * - Answer case-insensitive prefix queries from sorted maps of usernames and emails
+ * - Answer substring queries (3+ characters) from a trigram index, verifying each candidate
+ * - Rank username prefix matches first, then email prefix matches, then substring matches
+ * - Stay in step with UserDAO inserts, updates and deletes
+ * - Build itself from the users table in the background at startup
+ * <p>
+ * Reads share a ReadWriteLock so searches run in parallel; writes are short and exclusive.
+ * Until the first build completes, search() returns null and callers fall back to the database.
+ * Writes made while the build is scanning mark the user dirty, and dirty users are reloaded
+ * from the primary, outside the lock, until a pass finds none left to publish over.
+ *
+ * @see UserDAO
+ * @see UserService
+ */
+public class UserSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final AtomicBoolean building = new AtomicBoolean();
+    private static final Set<Integer> dirtyDuringBuild = new HashSet<>();
+    private static Index index; // guarded by lock; null until the first build is published
+
+    /**
+     * Starts the background build unless one is already running.
+     */
+    public static void buildAsync() {
+        if (building.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("user-search-index").start(UserSearchIndex::build);
+        }
+    }
+
+    /**
+     * @return up to limit matching users in rank order, or null if the index is not built yet
+     */
+    public static List<User> search(String query, int limit) {
+        String normalized = normalize(query);
+
+        lock.readLock().lock();
+        try {
+            return index != null ? index.search(normalized, limit) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static void recordUser(User user) {
+        update(user.getId(), current -> current.put(Entry.of(user.getId(), user.getUsername(), user.getEmail())));
+    }
+
+    public static void recordUsername(int userId, String username) {
+        update(userId, current -> {
+            Entry existing = current.entries.get(userId);
+            if (existing != null) {
+                current.put(Entry.of(userId, username, existing.email()));
+            }
+        });
+    }
+
+    public static void recordEmail(int userId, String email) {
+        update(userId, current -> {
+            Entry existing = current.entries.get(userId);
+            if (existing != null) {
+                current.put(Entry.of(userId, existing.username(), email));
+            }
+        });
+    }
+
+    public static void recordDeletion(int userId) {
+        update(userId, current -> current.remove(userId));
+    }
+
+    private static void update(int userId, Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                change.accept(index);
+            } else if (building.get()) {
+                dirtyDuringBuild.add(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void build() {
+        try {
+            UserDAO userDAO = new UserDAO();
+            Index built = new Index();
+            userDAO.streamAllUsers(user -> built.put(Entry.of(user.getId(), user.getUsername(), user.getEmail())));
+
+            // Dirty users are reloaded from the primary outside the lock: writers call update() while
+            // holding a pooled connection, so a database read under the lock could starve the pool.
+            // Users dirtied during a reload are picked up by the next pass; publish once none are left.
+            while (true) {
+                Set<Integer> dirty;
+
+                lock.writeLock().lock();
+                try {
+                    if (dirtyDuringBuild.isEmpty()) {
+                        index = built;
+                        break;
+                    }
+
+                    dirty = new HashSet<>(dirtyDuringBuild);
+                    dirtyDuringBuild.clear();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                Map<Integer, User> reloaded = userDAO.getUsersByIdFromPrimary(dirty);
+
+                for (int userId : dirty) {
+                    User user = reloaded.get(userId);
+
+                    if (user == null) {
+                        built.remove(userId);
+                    } else {
+                        built.put(Entry.of(userId, user.getUsername(), user.getEmail()));
+                    }
+                }
+            }
+
+            System.out.println("User search index built with " + built.entries.size() + " users");
+        } catch (SQLException | IOException e) {
+            System.err.println("User search index build failed, searches will use the database: " + e.getMessage());
+        } finally {
+            building.set(false);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(int id, String username, String email, String normalizedUsername, String normalizedEmail) {
+        static Entry of(int id, String username, String email) {
+            return new Entry(id, username, email, normalize(username), normalize(email));
+        }
+
+        String usernameKey() {
+            return normalizedUsername + KEY_SEPARATOR + id;
+        }
+
+        String emailKey() {
+            return normalizedEmail + KEY_SEPARATOR + id;
+        }
+
+        boolean contains(String normalizedQuery) {
+            return normalizedUsername.contains(normalizedQuery) || normalizedEmail.contains(normalizedQuery);
+        }
+
+        User toUser() {
+            return new User(id, username, email, null);
+        }
+    }
+
+    // Not thread-safe on its own; always accessed under the enclosing lock (or before publication)
+    private static class Index {
+        private final Map<Integer, Entry> entries = new HashMap<>();
+        private final NavigableMap<String, Entry> byUsername = new TreeMap<>();
+        private final NavigableMap<String, Entry> byEmail = new TreeMap<>();
+        private final Map<String, Set<Integer>> grams = new HashMap<>();
+
+        void put(Entry entry) {
+            remove(entry.id());
+            entries.put(entry.id(), entry);
+            byUsername.put(entry.usernameKey(), entry);
+            byEmail.put(entry.emailKey(), entry);
+
+            for (String gram : gramsOf(entry)) {
+                grams.computeIfAbsent(gram, g -> new HashSet<>()).add(entry.id());
+            }
+        }
+
+        void remove(int userId) {
+            Entry existing = entries.remove(userId);
+
+            if (existing == null) {
+                return;
+            }
+
+            byUsername.remove(existing.usernameKey());
+            byEmail.remove(existing.emailKey());
+
+            for (String gram : gramsOf(existing)) {
+                Set<Integer> ids = grams.get(gram);
+                ids.remove(userId);
+                if (ids.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+
+        List<User> search(String query, int limit) {
+            Map<Integer, Entry> matches = new LinkedHashMap<>();
+
+            addPrefixMatches(byUsername, query, matches, limit);
+            addPrefixMatches(byEmail, query, matches, limit);
+
+            if (query.length() >= GRAM_LENGTH && matches.size() < limit) {
+                addSubstringMatches(query, matches, limit);
+            }
+
+            List<User> users = new ArrayList<>(matches.size());
+            matches.values().forEach(entry -> users.add(entry.toUser()));
+
+            return users;
+        }
+
+        private void addPrefixMatches(NavigableMap<String, Entry> keys, String query,
+                                      Map<Integer, Entry> matches, int limit) {
+            for (Map.Entry<String, Entry> candidate : keys.tailMap(query, true).entrySet()) {
+                if (matches.size() >= limit || !candidate.getKey().startsWith(query)) {
+                    return;
+                }
+
+                matches.putIfAbsent(candidate.getValue().id(), candidate.getValue());
+            }
+        }
+
+        // Walks the rarest trigram's postings, checks the other postings, then confirms the substring
+        private void addSubstringMatches(String query, Map<Integer, Entry> matches, int limit) {
+            List<Set<Integer>> postings = new ArrayList<>();
+
+            for (String gram : gramsOf(query)) {
+                Set<Integer> ids = grams.get(gram);
+
+                if (ids == null) {
+                    return;
+                }
+                postings.add(ids);
+            }
+
+            postings.sort(Comparator.comparingInt(Set::size));
+            List<Set<Integer>> others = postings.subList(1, postings.size());
+
+            for (int userId : postings.get(0)) {
+                if (matches.size() >= limit) {
+                    return;
+                }
+
+                if (matches.containsKey(userId) || !others.stream().allMatch(ids -> ids.contains(userId))) {
+                    continue;
+                }
+
+                Entry entry = entries.get(userId);
+                if (entry.contains(query)) {
+                    matches.put(userId, entry);
+                }
+            }
+        }
+
+        private static Set<String> gramsOf(Entry entry) {
+            Set<String> entryGrams = gramsOf(entry.normalizedUsername());
+            entryGrams.addAll(gramsOf(entry.normalizedEmail()));
+            return entryGrams;
+        }
+
+        private static Set<String> gramsOf(String value) {
+            Set<String> valueGrams = new HashSet<>();
+
+            for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+                valueGrams.add(value.substring(i, i + GRAM_LENGTH));
+            }
+
+            return valueGrams;
+        }
+    }
+}
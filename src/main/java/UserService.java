@@ -11,19 +11,33 @@ import java.util.List;
  * - Validate business rules (authentication, authorization, uniqueness)
  * - Coordinate database operations through UserDAO
  * - Generate meaningful exceptions to indicate business error states
- * - Maintain data consistency by fetching fresh user data for operations
+ * - Maintain data consistency by fetching fresh user data for operations, reading credential
+ *   and uniqueness checks from the primary so replica lag can't accept an old password or name
+ * - Answer the availability endpoint from the AvailabilityIndex, querying only on possible hits
+ * - Check uniqueness against the database on every write, since the index only knows this
+ *   process's writes, and report a lost race on the UNIQUE constraint as the matching conflict
+ * - Hand successful logins to the ActivityTracker instead of writing them inline
  *
  * @see UserDAO
  * @see UserRequestHandler
  * @see UserValidationUtil
+ * @see AvailabilityIndex
+ * @see UserSearchIndex
+ * @see ActivityTracker
  */
 public class UserService {
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final UserDAO userDAO = new UserDAO();
 
     public User getUserById(int id) throws SQLException {
         return userDAO.getUserById(id);
     }
 
+    public User getUserByIdFromPrimary(int id) throws SQLException {
+        return userDAO.getUserByIdFromPrimary(id);
+    }
+
     public User getUserByUsername(String username) throws SQLException {
         return userDAO.getUserByUsername(username);
     }
@@ -32,6 +46,21 @@ public class UserService {
         return userDAO.getUserByEmail(email);
     }
 
+    // For the availability endpoint only: a filter miss is trusted, so rows written by another
+    // process can be reported as available. Writes check the database instead
+    public boolean isUsernameAvailable(String username) throws SQLException {
+        return !AvailabilityIndex.mightContainUsername(username) || getUserByUsername(username) == null;
+    }
+
+    public boolean isEmailAvailable(String email) throws SQLException {
+        return !AvailabilityIndex.mightContainEmail(email) || getUserByEmail(email) == null;
+    }
+
+    public List<User> searchUsers(String query, int limit) throws SQLException {
+        List<User> users = UserSearchIndex.search(query, limit);
+        return users != null ? users : userDAO.searchUsers(query.trim(), limit);
+    }
+
     public List<User> getAllUsers() throws SQLException {
         return userDAO.getAllUsers();
     }
@@ -45,47 +74,64 @@ public class UserService {
         String validatedUsername = UserValidationUtil.validateUsername(username);
         String validatedEmail = UserValidationUtil.validateEmail(email);
 
-        if (getUserByUsername(validatedUsername) != null) {
+        if (userDAO.getUserByUsernameFromPrimary(validatedUsername) != null) {
             throw new UserAlreadyExistsException("User already exists with the requested username");
         }
 
-        if (getUserByEmail(validatedEmail) != null) {
+        if (userDAO.getUserByEmailFromPrimary(validatedEmail) != null) {
             throw new EmailAlreadyExistsException("User already exists with the requested email");
         }
 
-        return userDAO.insertUser(new User(
-                validatedUsername,
-                validatedEmail,
-                UserValidationUtil.validatePassword(password))
-        );
+        User user = new User(validatedUsername, validatedEmail, UserValidationUtil.validatePassword(password));
+
+        try {
+            return userDAO.insertUser(user);
+        } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                // The constraint name (users_email_key or users_username_key) says which column clashed
+                if (String.valueOf(e.getMessage()).contains("email")) {
+                    throw new EmailAlreadyExistsException("User already exists with the requested email");
+                }
+                throw new UserAlreadyExistsException("User already exists with the requested username");
+            }
+            throw e;
+        }
     }
 
     public User authenticateUser(String username, String password)
             throws SQLException, UserAuthenticationException {
-        User user = getUserByUsername(username);
+        User user = userDAO.getUserByUsernameFromPrimary(username);
 
         if (user == null || !user.verifyPassword(password)) {
             throw new UserAuthenticationException("User authentication failed");
         }
 
+        ActivityTracker.recordLogin(user.getId());
         return user;
     }
 
     public User changeUsername(int userId, String username, String password) throws SQLException,
             UserAuthenticationException, UserAlreadyExistsException, ValidationException {
         String validatedUsername = UserValidationUtil.validateUsername(username);
-        User user = getUserById(userId);
+        User user = userDAO.getUserByIdFromPrimary(userId);
 
         if (user == null || !user.verifyPassword(password)) {
             throw new UserAuthenticationException("User authentication failed");
         }
 
-        if (getUserByUsername(validatedUsername) != null) {
+        if (userDAO.getUserByUsernameFromPrimary(validatedUsername) != null) {
             throw new UserAlreadyExistsException("User already exists with the requested username");
         }
 
-        if (!userDAO.updateUsername(userId, validatedUsername)) {
-            throw new SQLException("Failed to update username");
+        try {
+            if (!userDAO.updateUsername(userId, validatedUsername)) {
+                throw new SQLException("Failed to update username");
+            }
+        } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                throw new UserAlreadyExistsException("User already exists with the requested username");
+            }
+            throw e;
         }
 
         user.setUsername(validatedUsername);
@@ -94,7 +140,7 @@ public class UserService {
 
     public User changePassword(int userId, String oldPassword, String newPassword)
             throws SQLException, UserAuthenticationException, ValidationException {
-        User user = getUserById(userId);
+        User user = userDAO.getUserByIdFromPrimary(userId);
 
         if (user == null || !user.verifyPassword(oldPassword)) {
             throw new UserAuthenticationException("User authentication failed");
@@ -114,24 +160,36 @@ public class UserService {
     public User changeEmail(int userId, String email, String password) throws SQLException,
             UserAuthenticationException, EmailAlreadyExistsException, ValidationException {
         String validatedEmail = UserValidationUtil.validateEmail(email);
-        User user = getUserById(userId);
+        User user = userDAO.getUserByIdFromPrimary(userId);
 
         if (user == null || !user.verifyPassword(password)) {
             throw new UserAuthenticationException("User authentication failed");
         }
 
-        if (getUserByEmail(validatedEmail) != null) {
+        if (userDAO.getUserByEmailFromPrimary(validatedEmail) != null) {
             throw new EmailAlreadyExistsException("User already exists with the requested email");
         }
 
-        if (!userDAO.updateEmail(userId, validatedEmail)) {
-            throw new SQLException("Failed to update email");
+        try {
+            if (!userDAO.updateEmail(userId, validatedEmail)) {
+                throw new SQLException("Failed to update email");
+            }
+        } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                throw new EmailAlreadyExistsException("User already exists with the requested email");
+            }
+            throw e;
         }
 
         user.setEmail(validatedEmail);
         return user;
     }
 
+    // Another request or process took the value between the check and the write
+    private static boolean isUniqueViolation(SQLException e) {
+        return UNIQUE_VIOLATION.equals(e.getSQLState());
+    }
+
     public static class UserAuthenticationException extends Exception {
         UserAuthenticationException(String message) {
             super(message);
@@ -5,14 +5,18 @@ import java.util.regex.Pattern;
  * Validates request field presence, format compliance, and business rules using regex patterns
  * that mirror frontend validation rules for consistency.
  * <p>
- * All validation methods throw ValidationException and must be handled by the calling method.
+ * All validation methods throw ValidationException and must be handled by the calling method;
+ * a breached password throws its BreachedPasswordException subclass.
  * <p>
  * Validation rules:
  * - Username: 4-25 alphanumeric characters; may contain dots, underscores, and hyphens
  * - Email: Standard email format validation
- * - Password: 8-40 characters with at least one uppercase, lowercase, number, and special character
+ * - Password: 8-40 characters with at least one uppercase, lowercase, number, and special character,
+ *   and not in the BreachedPasswordIndex
  *
  * @see UserService
+ * @see BreachedPasswordIndex
+ * @see BreachedPasswordException
  */
 public class UserValidationUtil {
     private static final Pattern USERNAME_PATTERN = Pattern.compile("^[a-zA-Z0-9._-]{4,25}$");
@@ -34,6 +38,10 @@ public class UserValidationUtil {
             throw new ValidationException("Insufficient password complexity");
         }
 
+        if (BreachedPasswordIndex.isBreached(password)) {
+            throw new BreachedPasswordException("Password appears in a known data breach; choose a different one");
+        }
+
         return password;
     }
 
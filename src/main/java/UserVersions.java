@@ -0,0 +1,56 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user version counters used as ETags for single-user responses, so clients can
+ * revalidate a cached profile with If-None-Match and receive 304 without a database read.
+ * <p>
+ * Responsibilities:
+ * - Hand out the current ETag for a user, assigning a version on first use
+ * - Bump a user's version when UserDAO changes their username, email or password
+ * - Forget deleted users so their old tag can never be answered with 304
+ * <p>
+ * Versions live in memory only. Every tag carries the server's start time, so tags issued
+ * before a restart no longer match. Versions come from one global counter and are never
+ * reused, so a tag cannot match a later version of the same user.
+ *
+ * @see UserDAO
+ * @see UserRequestHandler
+ */
+public class UserVersions {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicLong nextVersion = new AtomicLong();
+    private static final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @return the user's ETag if their version is cached, otherwise null
+     */
+    public static String getCachedETag(int userId) {
+        Long version = versions.get(userId);
+        return version != null ? toETag(userId, version) : null;
+    }
+
+    /**
+     * Returns the user's ETag, assigning a version if none is cached. Call it before reading
+     * the user, so a concurrent change can only leave the tag older than the data, never newer.
+     */
+    public static String getETag(int userId) {
+        return toETag(userId, versions.computeIfAbsent(userId, id -> nextVersion.incrementAndGet()));
+    }
+
+    /**
+     * Called before and after a write, so the old tag stops matching while the write is in flight.
+     */
+    public static void recordChange(int userId) {
+        versions.put(userId, nextVersion.incrementAndGet());
+    }
+
+    public static void recordDeletion(int userId) {
+        versions.remove(userId);
+    }
+
+    private static String toETag(int userId, long version) {
+        return "\"" + EPOCH + "-" + Integer.toString(userId, 36) + "-" + Long.toString(version, 36) + "\"";
+    }
+}
@@ -7,8 +7,10 @@
  * Common scenarios:
  * - Invalid username or email format
  * - Password complexity requirements not met
+ * - Password found in the breached password list (as BreachedPasswordException)
  *
  * @see UserValidationUtil
+ * @see BreachedPasswordException
  */
 public class ValidationException extends Exception {
     public ValidationException(String message) {
@@ -0,0 +1,104 @@
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Watches the JVM's jdk.VirtualThreadPinned events in-process and reports pinning that
+ * happens inside JDBC calls, where a virtual thread blocked on the database while pinned
+ * holds its carrier thread and can starve every other request.
+ * <p>
+ * Responsibilities:
+ * - Stream jdk.VirtualThreadPinned events above the configured threshold, with stack traces
+ * - Count all pinning, and separately pinning with a JDBC or DAO frame on the stack
+ * - Log the pinned JDBC frame and duration, at most once per LOG_INTERVAL
+ * <p>
+ * The same events land in any -XX:StartFlightRecording recording, next to FlightEvents'
+ * DatabaseQuery events, so a pinned query can be matched to its query name there.
+ *
+ * @see FlightEvents
+ * @see ServerConfig
+ */
+public class VirtualThreadPinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final long LOG_INTERVAL_NANOS = Duration.ofSeconds(10).toNanos();
+    private static final String[] JDBC_FRAME_PREFIXES = {"org.postgresql.", "java.sql.", "UserDAO",
+            "UserLookupBatcher", "DBConnectionManager"};
+
+    private static final LongAdder pinnedCount = new LongAdder();
+    private static final LongAdder jdbcPinnedCount = new LongAdder();
+    private static final AtomicLong nextLogNanos = new AtomicLong(System.nanoTime());
+    private static RecordingStream stream; // guarded by VirtualThreadPinningMonitor.class
+
+    public static synchronized void start(ServerConfig.DiagnosticsSettings settings) {
+        if (!settings.pinningMonitorEnabled() || stream != null) {
+            return;
+        }
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(settings.pinningThresholdMillis()))
+                .withStackTrace();
+        stream.onEvent(PINNED_EVENT, VirtualThreadPinningMonitor::onPinned);
+        stream.startAsync();
+    }
+
+    public static synchronized void shutdown() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    public static long getPinnedCount() {
+        return pinnedCount.sum();
+    }
+
+    public static long getJdbcPinnedCount() {
+        return jdbcPinnedCount.sum();
+    }
+
+    private static void onPinned(RecordedEvent event) {
+        pinnedCount.increment();
+        RecordedFrame jdbcFrame = findJdbcFrame(event);
+
+        if (jdbcFrame == null) {
+            return;
+        }
+
+        jdbcPinnedCount.increment();
+        long now = System.nanoTime();
+        long nextLog = nextLogNanos.get();
+
+        if (now - nextLog >= 0 && nextLogNanos.compareAndSet(nextLog, now + LOG_INTERVAL_NANOS)) {
+            System.err.println("Virtual thread pinned for " + event.getDuration().toMillis() + " ms in JDBC call at "
+                    + jdbcFrame.getMethod().getType().getName() + "." + jdbcFrame.getMethod().getName()
+                    + " (" + jdbcPinnedCount.sum() + " JDBC pinning events so far)");
+        }
+    }
+
+    // The first (innermost) matching frame is the most specific place the pin happened
+    private static RecordedFrame findJdbcFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return null;
+        }
+
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod() == null) {
+                continue;
+            }
+
+            String typeName = frame.getMethod().getType().getName();
+
+            for (String prefix : JDBC_FRAME_PREFIXES) {
+                if (typeName.startsWith(prefix)) {
+                    return frame;
+                }
+            }
+        }
+
+        return null;
+    }
+}
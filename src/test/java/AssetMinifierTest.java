@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AssetMinifierTest {
+
+    @Test
+    void keepsDivisionAfterOperands() {
+        assertEquals("const a=b / c / d;\n", AssetMinifier.minifyJavaScript("const a = b / c / d;"));
+        assertEquals("const half=(a+b) / 2 / c;\n", AssetMinifier.minifyJavaScript("const half = (a + b) / 2 / c;"));
+    }
+
+    @Test
+    void keepsRegexLiteralsIntact() {
+        assertEquals("const r= /ab+c/g.test(s);\n", AssetMinifier.minifyJavaScript("const r = /ab+c/g.test(s);"));
+        assertEquals("function f(s){return /\\d+/.test(s);}\n",
+                AssetMinifier.minifyJavaScript("function f(s) {\n    return /\\d+/.test(s);\n}"));
+    }
+
+    @Test
+    void doesNotEndRegexAtSlashInsideClassOrEscape() {
+        assertEquals("const slash= /[/]/;const x=1;\n",
+                AssetMinifier.minifyJavaScript("const slash = /[/]/;\nconst x = 1;"));
+        assertEquals("const r= /a\\/\\/b/;\n", AssetMinifier.minifyJavaScript("const r = /a\\/\\/b/; // trailing"));
+    }
+
+    @Test
+    void stripsLineCommentAfterDivision() {
+        assertEquals("const n=total / count\n", AssetMinifier.minifyJavaScript("const n = total / count // per item\n"));
+    }
+
+    @Test
+    void keepsTemplateLiteralsWithNestedSubstitutions() {
+        assertEquals("const t=`a ${b+`nested ${c}`} d`;\n",
+                AssetMinifier.minifyJavaScript("const t = `a ${b + `nested ${c}`} d`;"));
+    }
+
+    @Test
+    void tracksBracesAndStringsInsideSubstitutions() {
+        assertEquals("const t=`${{a:1}.a} and ${'}'}`;\n",
+                AssetMinifier.minifyJavaScript("const t = `${ {a: 1}.a } and ${'}'}`;"));
+    }
+
+    @Test
+    void keepsCommentMarkersInsideStringsAndTemplates() {
+        assertEquals("const t=`// not a comment /* nor this */`;\n",
+                AssetMinifier.minifyJavaScript("const t = `// not a comment /* nor this */`;"));
+        assertEquals("const url=\"http://example.com\";\n",
+                AssetMinifier.minifyJavaScript("const url = \"http://example.com\"; // real comment"));
+        assertEquals("const s='/* keep */';\n", AssetMinifier.minifyJavaScript("const s = '/* keep */';"));
+    }
+
+    @Test
+    void removesCommentsOutsideStrings() {
+        assertEquals("let a=1+2;foo();\n",
+                AssetMinifier.minifyJavaScript("let a = 1 /* inline */ + 2;\n/* multi\nline */\nfoo();"));
+    }
+
+    @Test
+    void keepsNewlineAfterReturnForAutomaticSemicolonInsertion() {
+        assertEquals("function f(){return\nvalue;}\n",
+                AssetMinifier.minifyJavaScript("function f() {\n    return\n    value;\n}"));
+    }
+
+    @Test
+    void keepsNewlineBeforePrefixIncrementAndDecrement() {
+        assertEquals("a\n++b\n", AssetMinifier.minifyJavaScript("a\n++b"));
+        assertEquals("a\n--b\n", AssetMinifier.minifyJavaScript("a\n--b"));
+    }
+
+    @Test
+    void keepsSpaceBetweenAdjacentUnaryAndBinaryOperators() {
+        assertEquals("x=a+ +b- -c;\n", AssetMinifier.minifyJavaScript("x = a + +b - -c;"));
+    }
+
+    @Test
+    void keepsNewlinesThatTerminateStatements() {
+        assertEquals("const x=1\nconst y=2\n", AssetMinifier.minifyJavaScript("const x = 1\nconst y = 2"));
+        assertEquals("if(a){b();}\nelse{c();}\n",
+                AssetMinifier.minifyJavaScript("if (a) {\n    b();\n}\nelse {\n    c();\n}"));
+    }
+
+    @Test
+    void joinsLinesThatContinueAnExpression() {
+        assertEquals("x=y.map(f)\n", AssetMinifier.minifyJavaScript("x = y\n.map(f)"));
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssetPipelineTest {
+    @TempDir
+    Path scriptRoot;
+
+    @Test
+    void rewritesNamedImportsToRequireCalls() throws IOException {
+        write("main.js", """
+                import { greet, VERSION as version } from "./lib/greeting.js";
+                greet(version);
+                """);
+        write("lib/greeting.js", """
+                export function greet(name) {}
+                export const VERSION = "1";
+                """);
+
+        String bundle = AssetPipeline.bundleModules(scriptRoot);
+
+        assertTrue(bundle.contains("const {greet, VERSION: version} = __require(\"lib/greeting.js\");"), bundle);
+        assertFalse(bundle.contains("import "), bundle);
+    }
+
+    @Test
+    void bundlesDependenciesBeforeTheirImporters() throws IOException {
+        write("main.js", "import { a } from \"./a.js\";\n");
+        write("a.js", "export const a = 1;\n");
+
+        String bundle = AssetPipeline.bundleModules(scriptRoot);
+
+        assertTrue(bundle.indexOf("\"a.js\": () => {") < bundle.indexOf("\"main.js\": () => {"), bundle);
+        assertTrue(bundle.endsWith("__require(\"main.js\");\n"), bundle);
+    }
+
+    @Test
+    void resolvesParentRelativeSpecifiers() throws IOException {
+        write("main.js", "import { login } from \"./pages/login.js\";\n");
+        write("pages/login.js", """
+                import { API_ROOT } from "../utils/constants.js";
+                export function login() {}
+                """);
+        write("utils/constants.js", "export const API_ROOT = \"/api\";\n");
+
+        String bundle = AssetPipeline.bundleModules(scriptRoot);
+
+        assertTrue(bundle.contains("const {API_ROOT} = __require(\"utils/constants.js\");"), bundle);
+        assertTrue(bundle.contains("\"utils/constants.js\": () => {"), bundle);
+    }
+
+    @Test
+    void rewritesDynamicImportsAndBundlesTheirTargets() throws IOException {
+        write("main.js", "button.onclick = () => import(\"./pages/profile.js\").then(m => m.show());\n");
+        write("pages/profile.js", "export function show() {}\n");
+
+        String bundle = AssetPipeline.bundleModules(scriptRoot);
+
+        assertTrue(bundle.contains("() => __import(\"pages/profile.js\").then(m => m.show());"), bundle);
+        assertTrue(bundle.contains("\"pages/profile.js\": () => {"), bundle);
+    }
+
+    @Test
+    void stripsExportKeywordAndReturnsExportedNames() throws IOException {
+        write("main.js", """
+                export const a = 1;
+                export let b = 2;
+                export function c() {}
+                export class D {}
+                const hidden = 3;
+                """);
+
+        String bundle = AssetPipeline.bundleModules(scriptRoot);
+
+        assertTrue(bundle.contains("\"main.js\": () => {\nconst a = 1;\nlet b = 2;\nfunction c() {}\nclass D {}\n"
+                + "const hidden = 3;\n\nreturn {a, b, c, D};\n},\n"), bundle);
+    }
+
+    @Test
+    void rejectsImportCycles() throws IOException {
+        write("main.js", "import { a } from \"./a.js\";\n");
+        write("a.js", "import { b } from \"./b.js\";\nexport const a = 1;\n");
+        write("b.js", "import { a } from \"./a.js\";\nexport const b = 2;\n");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> AssetPipeline.bundleModules(scriptRoot));
+
+        assertEquals("Import cycle: main.js -> a.js -> b.js -> a.js", e.getMessage());
+    }
+
+    @Test
+    void rejectsBareSpecifiers() throws IOException {
+        write("main.js", "import { render } from \"lit\";\n");
+
+        assertThrows(IllegalStateException.class, () -> AssetPipeline.bundleModules(scriptRoot));
+    }
+
+    @Test
+    void rejectsSpecifiersOutsideScriptRoot() throws IOException {
+        write("main.js", "import { x } from \"../outside.js\";\n");
+
+        assertThrows(IllegalStateException.class, () -> AssetPipeline.bundleModules(scriptRoot));
+    }
+
+    @Test
+    void rejectsUnsupportedImportAndExportForms() throws IOException {
+        write("main.js", "export default function main() {}\n");
+        assertThrows(IllegalStateException.class, () -> AssetPipeline.bundleModules(scriptRoot));
+
+        write("main.js", "import * as all from \"./a.js\";\n");
+        assertThrows(IllegalStateException.class, () -> AssetPipeline.bundleModules(scriptRoot));
+    }
+
+    private void write(String moduleId, String source) throws IOException {
+        Path path = scriptRoot.resolve(moduleId);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, source);
+    }
+}